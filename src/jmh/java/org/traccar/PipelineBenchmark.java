@@ -0,0 +1,280 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.handler.codec.string.StringDecoder;
+import io.netty.handler.codec.string.StringEncoder;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.traccar.config.Config;
+import org.traccar.handler.ComputedAttributesHandler;
+import org.traccar.handler.FilterHandler;
+import org.traccar.handler.GeofenceHandler;
+import org.traccar.handler.events.BaseEventHandler;
+import org.traccar.handler.events.GeofenceEventHandler;
+import org.traccar.helper.Log;
+import org.traccar.model.Attribute;
+import org.traccar.model.Device;
+import org.traccar.model.Geofence;
+import org.traccar.model.Permission;
+import org.traccar.model.Position;
+import org.traccar.protocol.Gps103Protocol;
+import org.traccar.protocol.Gps103ProtocolDecoder;
+import org.traccar.storage.DatabaseModule;
+import org.traccar.storage.Storage;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Request;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end processing of recorded GPS103 frames through the complete pipeline created by
+ * {@link BasePipelineFactory}, using memory storage instead of a database. Optional stages can be toggled with the
+ * {@code stages} parameter to measure their cost. The throughput benchmark reports positions per second and the
+ * latency benchmark reports percentiles. Allocation rate is reported by the GC profiler.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    private static final String UNIQUE_ID = "123456789012345";
+    private static final int FRAME_COUNT = 3600;
+
+    private static final String FILTER = "filter";
+    private static final String GEOFENCE = "geofence";
+    private static final String COMPUTED_ATTRIBUTES = "computedAttributes";
+    private static final String EVENTS = "events";
+
+    @Param({"none", FILTER, GEOFENCE, COMPUTED_ATTRIBUTES, EVENTS, "all"})
+    private String stages;
+
+    private Path configFile;
+    private Storage storage;
+    private EmbeddedChannel channel;
+    private ByteBuf[] frames;
+    private int index;
+
+    private boolean isEnabled(String stage) {
+        return stages.equals("all") || stages.equals(stage);
+    }
+
+    private Path createConfig() throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("database.memory", "true");
+        entries.put("logger.console", "true");
+        entries.put("logger.level", "off");
+        if (isEnabled(FILTER)) {
+            entries.put("filter.enable", "true");
+            entries.put("filter.invalid", "true");
+            entries.put("filter.zero", "true");
+            entries.put("filter.duplicate", "true");
+        }
+        StringBuilder content = new StringBuilder();
+        content.append("<?xml version='1.0' encoding='UTF-8'?>\n");
+        content.append("<!DOCTYPE properties SYSTEM 'http://java.sun.com/dtd/properties.dtd'>\n");
+        content.append("<properties>\n");
+        entries.forEach((key, value) -> content.append("<entry key='").append(key).append("'>")
+                .append(value).append("</entry>\n"));
+        content.append("</properties>\n");
+        Path path = Files.createTempFile("traccar", ".xml");
+        Files.writeString(path, content);
+        return path;
+    }
+
+    private void createObjects(long deviceId) throws Exception {
+        if (isEnabled(GEOFENCE)) {
+            Geofence geofence = new Geofence();
+            geofence.setName("Benchmark");
+            geofence.setArea("CIRCLE (49.25 16.57, 5000)");
+            geofence.setId(storage.addObject(geofence, new Request(new Columns.Exclude("id"))));
+            storage.addPermission(new Permission(Device.class, deviceId, Geofence.class, geofence.getId()));
+        }
+        if (isEnabled(COMPUTED_ATTRIBUTES)) {
+            Attribute attribute = new Attribute();
+            attribute.setDescription("Speed");
+            attribute.setAttribute("speedKph");
+            attribute.setExpression("speed * 1.852");
+            attribute.setType("number");
+            attribute.setId(storage.addObject(attribute, new Request(new Columns.Exclude("id"))));
+            storage.addPermission(new Permission(Device.class, deviceId, Attribute.class, attribute.getId()));
+        }
+    }
+
+    private boolean isRemoved(ChannelHandler handler) {
+        if (handler instanceof WrapperInboundHandler) {
+            handler = ((WrapperInboundHandler) handler).getWrappedHandler();
+        }
+        if (handler instanceof FilterHandler) {
+            return !isEnabled(FILTER);
+        } else if (handler instanceof GeofenceHandler || handler instanceof GeofenceEventHandler) {
+            return !isEnabled(GEOFENCE);
+        } else if (handler instanceof ComputedAttributesHandler) {
+            return !isEnabled(COMPUTED_ATTRIBUTES);
+        } else if (handler instanceof BaseEventHandler) {
+            return !isEnabled(EVENTS);
+        }
+        return false;
+    }
+
+    private static ByteBuf createFrame(int index) {
+        int seconds = index % 86400;
+        String time = String.format(
+                "%02d%02d%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+        String frame = String.format(Locale.US,
+                "imei:%s,tracker,230601%s,,F,%s.000,A,49%07.4f,N,016%07.4f,E,%.2f,%.2f;",
+                UNIQUE_ID, time, time, 15 + index % 100 * 0.001, 34.2 + index % 100 * 0.001,
+                10 + index % 40 * 0.5, index % 360 * 1.0);
+        return Unpooled.unreleasableBuffer(Unpooled.copiedBuffer(frame, StandardCharsets.US_ASCII));
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        configFile = createConfig();
+        Injector injector = Guice.createInjector(new MainModule(configFile.toString()), new DatabaseModule());
+        Main.setInjector(injector);
+        Log.setupLogger(injector.getInstance(Config.class));
+
+        storage = injector.getInstance(Storage.class);
+        Device device = new Device();
+        device.setName("Benchmark");
+        device.setUniqueId(UNIQUE_ID);
+        device.setId(storage.addObject(device, new Request(new Columns.Exclude("id"))));
+        createObjects(device.getId());
+
+        Gps103Protocol protocol = injector.getInstance(Gps103Protocol.class);
+        ChannelGroup channelGroup = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        TrackerConnector connector = new TrackerConnector() {
+            @Override
+            public boolean isDatagram() {
+                return false;
+            }
+
+            @Override
+            public boolean isSecure() {
+                return false;
+            }
+
+            @Override
+            public ChannelGroup getChannelGroup() {
+                return channelGroup;
+            }
+
+            @Override
+            public void start() {
+            }
+
+            @Override
+            public void stop() {
+            }
+        };
+        Config config = injector.getInstance(Config.class);
+        BasePipelineFactory factory = new BasePipelineFactory(connector, config, protocol.getName()) {
+            @Override
+            protected void addTransportHandlers(PipelineBuilder pipeline) {
+            }
+
+            @Override
+            protected void addProtocolHandlers(PipelineBuilder pipeline) {
+                pipeline.addLast(new CharacterDelimiterFrameDecoder(2048, false, "\r\n", "\n", ";", "*"));
+                pipeline.addLast(new StringEncoder());
+                pipeline.addLast(new StringDecoder());
+                pipeline.addLast(new Gps103ProtocolDecoder(protocol));
+            }
+        };
+        channel = new EmbeddedChannel(factory);
+
+        List<String> removed = new ArrayList<>();
+        channel.pipeline().forEach(entry -> {
+            if (isRemoved(entry.getValue())) {
+                removed.add(entry.getKey());
+            }
+        });
+        removed.forEach(channel.pipeline()::remove);
+
+        frames = new ByteBuf[FRAME_COUNT];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = createFrame(i);
+        }
+
+        process();
+        if (storage.getObjects(Position.class, new Request(new Columns.All())).isEmpty()) {
+            throw new IllegalStateException("Position has not been stored");
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clearPositions() throws Exception {
+        storage.removeObject(Position.class, new Request(new Columns.All()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        channel.finishAndReleaseAll();
+        Files.deleteIfExists(configFile);
+    }
+
+    private void process() {
+        channel.writeInbound(frames[index].duplicate());
+        index = (index + 1) % frames.length;
+        channel.releaseOutbound();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void throughput() {
+        process();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void latency() {
+        process();
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.traccar.BaseProtocolDecoder;
+import org.traccar.Protocol;
+import org.traccar.ProtocolTest;
+import org.traccar.broadcast.NullBroadcastService;
+import org.traccar.config.Config;
+import org.traccar.model.Device;
+import org.traccar.session.ConnectionManager;
+import org.traccar.session.DeviceSession;
+import org.traccar.session.cache.CacheManager;
+import org.traccar.storage.MemoryStorage;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Request;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoder throughput for the most common protocols. Sample messages are collected by running the protocol decoder
+ * tests, and the first message that decodes into a position is used. Run with the GC profiler ({@code -prof gc}) to
+ * see bytes allocated per decoded message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProtocolDecoderBenchmark {
+
+    private static final class Sample {
+
+        private final BaseProtocolDecoder decoder;
+        private final byte[] data;
+        private final String text;
+
+        private Sample(BaseProtocolDecoder decoder, byte[] data, String text) {
+            this.decoder = decoder;
+            this.data = data;
+            this.text = text;
+        }
+
+    }
+
+    private static final class BenchmarkConnectionManager extends ConnectionManager {
+
+        private final DeviceSession deviceSession;
+
+        BenchmarkConnectionManager(Config config, DeviceSession deviceSession) {
+            super(config, null, null, null, null, new NullBroadcastService(), null);
+            this.deviceSession = deviceSession;
+        }
+
+        @Override
+        public DeviceSession getDeviceSession(
+                Protocol protocol, Channel channel, SocketAddress remoteAddress, String... uniqueIds) {
+            return deviceSession;
+        }
+
+    }
+
+    @Param({
+            "Gt06", "Teltonika", "Gl200Text", "H02", "Huabao", "Suntech", "Meitrack", "Tk103", "Gps103",
+            "Watch", "Xexun", "Meiligao", "Ruptela", "Totem", "Tlt2h", "Xirgo", "Galileo", "Wialon", "Jt600",
+            "Castel", "Atrack", "Cellocator", "Aplicom", "Startek", "Laipac", "Tzone", "Eelink", "Pt502",
+            "Ulbotech", "Navis", "T55"})
+    private String protocol;
+
+    private BaseProtocolDecoder decoder;
+    private MethodHandle decodeMethod;
+    private ByteBuf buffer;
+    private String text;
+
+    private List<Sample> collectSamples() throws ReflectiveOperationException {
+        Class<?> testClass = Class.forName(
+                ProtocolDecoderBenchmark.class.getPackageName() + "." + protocol + "ProtocolDecoderTest");
+        List<Sample> samples = new ArrayList<>();
+        ProtocolTest.setDecodeListener((decoder, message) -> {
+            if (message instanceof ByteBuf) {
+                samples.add(new Sample(decoder, ByteBufUtil.getBytes((ByteBuf) message), null));
+            } else if (message instanceof String) {
+                samples.add(new Sample(decoder, null, (String) message));
+            }
+        });
+        try {
+            Method[] methods = testClass.getMethods();
+            Arrays.sort(methods, Comparator.comparing(Method::getName));
+            for (Method method : methods) {
+                if (method.isAnnotationPresent(Test.class) && !method.isAnnotationPresent(Disabled.class)) {
+                    method.invoke(testClass.getConstructor().newInstance());
+                }
+            }
+        } finally {
+            ProtocolTest.setDecodeListener(null);
+        }
+        return samples;
+    }
+
+    @Setup
+    public void setup() throws Throwable {
+        var config = new Config();
+        var storage = new MemoryStorage();
+        var device = new Device();
+        device.setUniqueId("123456789012345");
+        device.setId(storage.addObject(device, new Request(new Columns.Exclude("id"))));
+        var cacheManager = new CacheManager(config, storage, new NullBroadcastService());
+        cacheManager.addDevice(device.getId());
+        var connectionManager = new BenchmarkConnectionManager(
+                config, new DeviceSession(device.getId(), device.getUniqueId(), null, null, null));
+
+        for (Sample sample : collectSamples()) {
+            decoder = sample.decoder;
+            decoder.setConfig(config);
+            decoder.setCacheManager(cacheManager);
+            decoder.setConnectionManager(connectionManager);
+
+            decodeMethod = MethodHandles.lookup()
+                    .findVirtual(decoder.getClass(), "decode",
+                            MethodType.methodType(Object.class, Channel.class, SocketAddress.class, Object.class))
+                    .asType(MethodType.methodType(
+                            Object.class, BaseProtocolDecoder.class, Channel.class, SocketAddress.class, Object.class));
+
+            buffer = sample.data != null
+                    ? Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(sample.data)) : null;
+            text = sample.text;
+
+            if (decode() != null) {
+                return;
+            }
+        }
+        throw new IllegalStateException("No sample message for " + protocol + " is decoded");
+    }
+
+    @Benchmark
+    public Object decode() throws Throwable {
+        Object message = buffer != null ? buffer.duplicate() : text;
+        return (Object) decodeMethod.invokeExact(decoder, (Channel) null, (SocketAddress) null, message);
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.session.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.traccar.broadcast.NullBroadcastService;
+import org.traccar.config.Config;
+import org.traccar.model.Device;
+import org.traccar.model.Geofence;
+import org.traccar.model.Permission;
+import org.traccar.model.Position;
+import org.traccar.storage.MemoryStorage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Request;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheManagerBenchmark {
+
+    @Param("10000")
+    private int deviceCount;
+
+    private CacheManager cacheManager;
+    private long[] deviceIds;
+    private long reloadedDeviceId;
+
+    @Setup
+    public void setup() throws StorageException {
+        var storage = new MemoryStorage();
+        var geofence = new Geofence();
+        geofence.setId(storage.addObject(geofence, new Request(new Columns.Exclude("id"))));
+
+        deviceIds = new long[deviceCount + 1];
+        for (int i = 0; i < deviceIds.length; i++) {
+            Device device = new Device();
+            device.setUniqueId(String.valueOf(i));
+            device.setId(storage.addObject(device, new Request(new Columns.Exclude("id"))));
+            Position position = new Position();
+            position.setDeviceId(device.getId());
+            position.setId(storage.addObject(position, new Request(new Columns.Exclude("id"))));
+            device.setPositionId(position.getId());
+            storage.addPermission(new Permission(Device.class, device.getId(), Geofence.class, geofence.getId()));
+            deviceIds[i] = device.getId();
+        }
+
+        cacheManager = new CacheManager(new Config(), storage, new NullBroadcastService());
+        for (int i = 0; i < deviceCount; i++) {
+            cacheManager.addDevice(deviceIds[i]);
+        }
+        reloadedDeviceId = deviceIds[deviceCount];
+    }
+
+    private long randomDeviceId() {
+        return deviceIds[ThreadLocalRandom.current().nextInt(deviceCount)];
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object getObjectSingleThread() {
+        return cacheManager.getObject(Device.class, randomDeviceId());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object getObjectAllThreads() {
+        return cacheManager.getObject(Device.class, randomDeviceId());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object getDeviceObjectsAllThreads() {
+        return cacheManager.getDeviceObjects(randomDeviceId(), Geofence.class);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(6)
+    public Object contendedRead() {
+        return cacheManager.getPosition(randomDeviceId());
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void contendedUpdate() {
+        Position position = new Position();
+        position.setDeviceId(randomDeviceId());
+        cacheManager.updatePosition(position);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void contendedLoad() throws StorageException {
+        cacheManager.addDevice(reloadedDeviceId);
+        cacheManager.removeDevice(reloadedDeviceId);
+    }
+
+}
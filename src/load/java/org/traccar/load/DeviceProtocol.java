@@ -0,0 +1,67 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.load;
+
+import io.netty.buffer.ByteBuf;
+
+public abstract class DeviceProtocol {
+
+    private final int port;
+    private final int acknowledgements;
+
+    protected DeviceProtocol(int port, int acknowledgements) {
+        this.port = port;
+        this.acknowledgements = acknowledgements;
+    }
+
+    public static DeviceProtocol create(String name) {
+        switch (name) {
+            case "gt06":
+                return new Gt06DeviceProtocol();
+            case "teltonika":
+                return new TeltonikaDeviceProtocol();
+            case "h02":
+                return new H02DeviceProtocol();
+            case "osmand":
+                return new OsmAndDeviceProtocol();
+            default:
+                throw new IllegalArgumentException("Unsupported protocol " + name);
+        }
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Number of server responses expected for each message sent.
+     */
+    public int getAcknowledgements() {
+        return acknowledgements;
+    }
+
+    public ByteBuf encodeLogin(VirtualDevice device) {
+        return null;
+    }
+
+    public abstract ByteBuf encodePosition(VirtualDevice device);
+
+    /**
+     * Consume complete server responses from the buffer and return their count.
+     */
+    public abstract int decodeAcknowledgements(ByteBuf buf);
+
+}
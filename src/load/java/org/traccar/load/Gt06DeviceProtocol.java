@@ -0,0 +1,116 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.load;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.traccar.helper.Checksum;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+public class Gt06DeviceProtocol extends DeviceProtocol {
+
+    private static final int MSG_LOGIN = 0x01;
+    private static final int MSG_GPS_LBS = 0x12;
+
+    public Gt06DeviceProtocol() {
+        super(5023, 1);
+    }
+
+    private ByteBuf encode(int type, int index, ByteBuf content) {
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeShort(0x7878);
+        buf.writeByte(5 + content.readableBytes());
+        buf.writeByte(type);
+        buf.writeBytes(content);
+        content.release();
+        buf.writeShort(index);
+        buf.writeShort(Checksum.crc16(Checksum.CRC16_X25, buf.nioBuffer(2, buf.writerIndex() - 2)));
+        buf.writeByte('\r');
+        buf.writeByte('\n');
+        return buf;
+    }
+
+    @Override
+    public ByteBuf encodeLogin(VirtualDevice device) {
+        ByteBuf content = Unpooled.buffer();
+        content.writeBytes(ByteBufUtil.decodeHexDump("0" + device.getUniqueId()));
+        content.writeShort(0); // type identifier
+        return encode(MSG_LOGIN, device.nextIndex(), content);
+    }
+
+    @Override
+    public ByteBuf encodePosition(VirtualDevice device) {
+        ByteBuf content = Unpooled.buffer();
+
+        ZonedDateTime time = Instant.ofEpochMilli(device.getTime()).atZone(ZoneOffset.UTC);
+        content.writeByte(time.getYear() - 2000);
+        content.writeByte(time.getMonthValue());
+        content.writeByte(time.getDayOfMonth());
+        content.writeByte(time.getHour());
+        content.writeByte(time.getMinute());
+        content.writeByte(time.getSecond());
+
+        content.writeByte(0xc0 | 8); // satellites
+        content.writeInt((int) Math.round(Math.abs(device.getLatitude()) * 60 * 30000));
+        content.writeInt((int) Math.round(Math.abs(device.getLongitude()) * 60 * 30000));
+        content.writeByte((int) Math.round(device.getSpeed()));
+
+        int flags = (int) device.getCourse() & 0x03ff;
+        flags |= 1 << 12; // valid
+        if (device.getLatitude() >= 0) {
+            flags |= 1 << 10;
+        }
+        if (device.getLongitude() < 0) {
+            flags |= 1 << 11;
+        }
+        content.writeShort(flags);
+
+        content.writeShort(0); // mcc
+        content.writeByte(0); // mnc
+        content.writeShort(0); // lac
+        content.writeMedium(0); // cid
+
+        return encode(MSG_GPS_LBS, device.nextIndex(), content);
+    }
+
+    @Override
+    public int decodeAcknowledgements(ByteBuf buf) {
+        int count = 0;
+        while (buf.readableBytes() >= 5) {
+            int header = buf.getUnsignedShort(buf.readerIndex());
+            int length;
+            if (header == 0x7878) {
+                length = 2 + 1 + buf.getUnsignedByte(buf.readerIndex() + 2) + 2;
+            } else if (header == 0x7979) {
+                length = 2 + 2 + buf.getUnsignedShort(buf.readerIndex() + 2) + 2;
+            } else {
+                buf.skipBytes(1);
+                continue;
+            }
+            if (buf.readableBytes() < length) {
+                break;
+            }
+            buf.skipBytes(length);
+            count += 1;
+        }
+        return count;
+    }
+
+}
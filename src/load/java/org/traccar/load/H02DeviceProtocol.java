@@ -0,0 +1,58 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.load;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Locale;
+
+public class H02DeviceProtocol extends DeviceProtocol {
+
+    public H02DeviceProtocol() {
+        super(5013, 0);
+    }
+
+    private static String formatCoordinate(double value, int degreesDigits) {
+        value = Math.abs(value);
+        int degrees = (int) value;
+        return String.format(Locale.US, "%0" + degreesDigits + "d%07.4f", degrees, (value - degrees) * 60);
+    }
+
+    @Override
+    public ByteBuf encodePosition(VirtualDevice device) {
+        ZonedDateTime time = Instant.ofEpochMilli(device.getTime()).atZone(ZoneOffset.UTC);
+        String message = String.format(Locale.US,
+                "*HQ,%s,V1,%02d%02d%02d,A,%s,%s,%s,%s,%.2f,%d,%02d%02d%02d,FFFFFBFF#",
+                device.getUniqueId(), time.getHour(), time.getMinute(), time.getSecond(),
+                formatCoordinate(device.getLatitude(), 2), device.getLatitude() >= 0 ? "N" : "S",
+                formatCoordinate(device.getLongitude(), 3), device.getLongitude() >= 0 ? "E" : "W",
+                device.getSpeed() / 1.852, (int) device.getCourse(),
+                time.getDayOfMonth(), time.getMonthValue(), time.getYear() % 100);
+        return Unpooled.copiedBuffer(message, StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public int decodeAcknowledgements(ByteBuf buf) {
+        buf.skipBytes(buf.readableBytes());
+        return 0;
+    }
+
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.load;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class LoadGenerator {
+
+    private static final String USAGE = String.join("\n",
+            "Usage: java -jar tracker-server-load.jar [options]",
+            "",
+            "Simulation mode:",
+            "  --protocol=NAME      gt06, teltonika, h02 or osmand",
+            "  --devices=N          number of virtual devices, one connection each (default 100)",
+            "  --interval=SECONDS   time between positions of each device (default 10)",
+            "  --firstId=ID         unique id of the first device, incremented for others (default 100000000000000)",
+            "  --latitude=DEGREES   center of the simulated area (default 0)",
+            "  --longitude=DEGREES  center of the simulated area (default 0)",
+            "  --radius=KM          radius of the simulated area (default 10)",
+            "",
+            "Replay mode:",
+            "  --replay=FILE        server log with hex messages written by the standard logging handler",
+            "  --protocol=NAME      only replay sessions of the given protocol",
+            "  --devices=N          maximum number of sessions to replay",
+            "  --speed=FACTOR       replay speed relative to the original timing, 0 sends without delays (default 1)",
+            "",
+            "Common options:",
+            "  --host=HOST          server address (default localhost)",
+            "  --port=PORT          server port (default port of the simulated protocol)",
+            "  --rampUp=SECONDS     time over which connections are opened (default 10)",
+            "  --duration=SECONDS   total test duration (default 60)",
+            "  --threads=N          event loop threads (default 2 * cores)",
+            "  --bind=ADDRESSES     comma separated local addresses to spread connections across");
+
+    private final Map<String, String> options;
+    private final LoadStatistics statistics = new LoadStatistics();
+    private final EventLoopGroup group;
+    private final InetSocketAddress remoteAddress;
+    private final List<InetAddress> localAddresses = new ArrayList<>();
+    private final AtomicInteger localIndex = new AtomicInteger();
+    private final long rampUp;
+
+    private LoadGenerator(Map<String, String> options, int defaultPort) throws UnknownHostException {
+        this.options = options;
+        group = new NioEventLoopGroup(getInteger("threads", 0));
+        remoteAddress = new InetSocketAddress(
+                InetAddress.getByName(options.getOrDefault("host", "localhost")), getInteger("port", defaultPort));
+        if (options.containsKey("bind")) {
+            for (String address : options.get("bind").split(",")) {
+                localAddresses.add(InetAddress.getByName(address.trim()));
+            }
+        }
+        rampUp = (long) (getDouble("rampUp", 10) * 1000);
+    }
+
+    private int getInteger(String key, int defaultValue) {
+        return options.containsKey(key) ? Integer.parseInt(options.get(key)) : defaultValue;
+    }
+
+    private double getDouble(String key, double defaultValue) {
+        return options.containsKey(key) ? Double.parseDouble(options.get(key)) : defaultValue;
+    }
+
+    private ChannelFuture connect(boolean datagram, LoadHandler handler) {
+        Bootstrap bootstrap = new Bootstrap()
+                .group(group)
+                .handler(handler);
+        if (datagram) {
+            bootstrap.channel(NioDatagramChannel.class);
+        } else {
+            bootstrap.channel(NioSocketChannel.class)
+                    .option(ChannelOption.TCP_NODELAY, true)
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 30000);
+        }
+        ChannelFuture future;
+        if (localAddresses.isEmpty()) {
+            future = bootstrap.connect(remoteAddress);
+        } else {
+            InetAddress localAddress = localAddresses.get(
+                    Math.floorMod(localIndex.getAndIncrement(), localAddresses.size()));
+            future = bootstrap.connect(remoteAddress, new InetSocketAddress(localAddress, 0));
+        }
+        return future.addListener((ChannelFutureListener) f -> {
+            if (!f.isSuccess()) {
+                statistics.failed();
+            }
+        });
+    }
+
+    private void startDevice(String protocolName, VirtualDevice device, long interval, Random random) {
+        DeviceProtocol protocol = DeviceProtocol.create(protocolName);
+        LoadHandler handler = new LoadHandler(statistics, protocol::decodeAcknowledgements);
+        connect(false, handler).addListener((ChannelFutureListener) future -> {
+            if (future.isSuccess()) {
+                Channel channel = future.channel();
+                ByteBuf login = protocol.encodeLogin(device);
+                if (login != null) {
+                    handler.send(channel, login, protocol.getAcknowledgements());
+                }
+                ScheduledFuture<?> task = channel.eventLoop().scheduleAtFixedRate(() -> {
+                    device.move(System.currentTimeMillis());
+                    handler.send(channel, protocol.encodePosition(device), protocol.getAcknowledgements());
+                }, (long) (random.nextDouble() * interval), interval, TimeUnit.MILLISECONDS);
+                channel.closeFuture().addListener(f -> task.cancel(false));
+            }
+        });
+    }
+
+    private void simulate(String protocolName) {
+        int devices = getInteger("devices", 100);
+        long interval = (long) (getDouble("interval", 10) * 1000);
+        long firstId = Long.parseLong(options.getOrDefault("firstId", "100000000000000"));
+        double latitude = getDouble("latitude", 0);
+        double longitude = getDouble("longitude", 0);
+        double radius = getDouble("radius", 10) / 111.0;
+
+        Random random = new Random();
+        for (int i = 0; i < devices; i++) {
+            double distance = radius * Math.sqrt(random.nextDouble());
+            double angle = random.nextDouble() * 2 * Math.PI;
+            VirtualDevice device = new VirtualDevice(
+                    String.valueOf(firstId + i),
+                    latitude + distance * Math.cos(angle),
+                    longitude + distance * Math.sin(angle) / Math.cos(Math.toRadians(latitude)),
+                    random.nextLong());
+            group.schedule(
+                    () -> startDevice(protocolName, device, interval, random),
+                    rampUp * i / devices, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void startSession(ReplaySession session, double speed) {
+        LoadHandler handler = new LoadHandler(statistics, session::decodeAcknowledgements);
+        connect(session.getDatagram(), handler).addListener((ChannelFutureListener) future -> {
+            if (future.isSuccess()) {
+                Channel channel = future.channel();
+                for (ReplaySession.Frame frame : session.getFrames()) {
+                    long delay = speed > 0 ? (long) ((frame.getTime() - session.getStartTime()) / speed) : 0;
+                    channel.eventLoop().schedule(() -> {
+                        if (channel.isActive()) {
+                            handler.send(channel, Unpooled.wrappedBuffer(frame.getData()),
+                                    frame.getAcknowledgements());
+                        }
+                    }, delay, TimeUnit.MILLISECONDS);
+                }
+            }
+        });
+    }
+
+    private void replay(String file, String protocolName) throws Exception {
+        Collection<ReplaySession> sessions = ReplaySession.read(Paths.get(file), protocolName);
+        int count = Math.min(sessions.size(), getInteger("devices", sessions.size()));
+        double speed = getDouble("speed", 1);
+        System.out.println("Replaying " + count + " of " + sessions.size() + " sessions");
+
+        int index = 0;
+        for (ReplaySession session : sessions) {
+            if (index >= count) {
+                break;
+            }
+            group.schedule(() -> startSession(session, speed), rampUp * index / count, TimeUnit.MILLISECONDS);
+            index += 1;
+        }
+    }
+
+    private void run() throws Exception {
+        String protocolName = options.get("protocol");
+        if (options.containsKey("replay")) {
+            replay(options.get("replay"), protocolName);
+        } else {
+            simulate(protocolName);
+        }
+
+        ScheduledFuture<?> reporter = group.scheduleAtFixedRate(
+                () -> System.out.println(statistics.report()), 1, 1, TimeUnit.SECONDS);
+        Thread.sleep((long) (getDouble("duration", 60) * 1000));
+        reporter.cancel(false);
+        group.shutdownGracefully(0, 5, TimeUnit.SECONDS).await();
+
+        System.out.println(statistics.summary());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                System.out.println(USAGE);
+                return;
+            }
+            int separator = arg.indexOf('=');
+            if (separator > 0) {
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            } else {
+                options.put(arg.substring(2), "true");
+            }
+        }
+
+        if (options.containsKey("help") || !options.containsKey("replay") && !options.containsKey("protocol")) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        int defaultPort = 0;
+        if (!options.containsKey("replay")) {
+            defaultPort = DeviceProtocol.create(options.get("protocol")).getPort();
+        } else if (!options.containsKey("port")) {
+            System.out.println("Port is required for replay");
+            return;
+        }
+
+        new LoadGenerator(options, defaultPort).run();
+    }
+
+}
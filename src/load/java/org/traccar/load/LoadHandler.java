@@ -0,0 +1,95 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.load;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.handler.codec.ByteToMessageDecoder;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.function.ToIntFunction;
+
+public class LoadHandler extends ByteToMessageDecoder {
+
+    private final LoadStatistics statistics;
+    private final ToIntFunction<ByteBuf> acknowledgementDecoder;
+    private final Queue<Long> pending = new ArrayDeque<>();
+
+    public LoadHandler(LoadStatistics statistics, ToIntFunction<ByteBuf> acknowledgementDecoder) {
+        this.statistics = statistics;
+        this.acknowledgementDecoder = acknowledgementDecoder;
+    }
+
+    /**
+     * Must be called from the channel event loop.
+     */
+    public void send(Channel channel, ByteBuf message, int acknowledgements) {
+        long time = System.nanoTime();
+        for (int i = 0; i < acknowledgements; i++) {
+            pending.add(time);
+        }
+        statistics.sent();
+        channel.writeAndFlush(message).addListener((ChannelFutureListener) future -> {
+            if (!future.isSuccess()) {
+                statistics.error();
+            }
+        });
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof DatagramPacket) {
+            super.channelRead(ctx, ((DatagramPacket) msg).content());
+        } else {
+            super.channelRead(ctx, msg);
+        }
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        int count = acknowledgementDecoder.applyAsInt(in);
+        long time = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            Long start = pending.poll();
+            statistics.acknowledged(start != null ? time - start : -1);
+        }
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        statistics.connected();
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        statistics.closed();
+        pending.clear();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        statistics.error();
+        ctx.close();
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.load;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LoadStatistics {
+
+    private static final double BUCKET_BASE = Math.log(1.05);
+    private static final int BUCKET_COUNT = 400;
+
+    private final LongAdder connected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder acknowledged = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLongArray latencies = new AtomicLongArray(BUCKET_COUNT);
+
+    private final long startTime;
+    private long lastTime;
+    private long lastSent;
+    private long lastAcknowledged;
+
+    public LoadStatistics() {
+        startTime = System.nanoTime();
+        lastTime = startTime;
+    }
+
+    public void connected() {
+        connected.increment();
+    }
+
+    public void failed() {
+        failed.increment();
+    }
+
+    public void closed() {
+        closed.increment();
+    }
+
+    public void sent() {
+        sent.increment();
+    }
+
+    public void error() {
+        errors.increment();
+    }
+
+    public void acknowledged(long latencyNanos) {
+        acknowledged.increment();
+        if (latencyNanos >= 0) {
+            double micros = Math.max(1, latencyNanos / 1000.0);
+            int bucket = Math.min(BUCKET_COUNT - 1, (int) (Math.log(micros) / BUCKET_BASE));
+            latencies.incrementAndGet(bucket);
+        }
+    }
+
+    /**
+     * Latency percentile in milliseconds, approximated to the upper bound of a 5% wide bucket.
+     */
+    public double getLatency(double quantile) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += latencies.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * quantile);
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += latencies.get(i);
+            if (count >= rank) {
+                return Math.exp((i + 1) * BUCKET_BASE) / 1000;
+            }
+        }
+        return Math.exp(BUCKET_COUNT * BUCKET_BASE) / 1000;
+    }
+
+    public synchronized String report() {
+        long time = System.nanoTime();
+        double interval = (time - lastTime) / 1e9;
+        long currentSent = sent.sum();
+        long currentAcknowledged = acknowledged.sum();
+        String result = String.format(Locale.US,
+                "%5ds connections %d open %d failed %d closed | sent %d (%.0f/s) acks %d (%.0f/s) errors %d"
+                + " | latency p50 %.1f ms p99 %.1f ms",
+                (time - startTime) / 1000000000L,
+                connected.sum() - closed.sum(), failed.sum(), closed.sum(),
+                currentSent, (currentSent - lastSent) / interval,
+                currentAcknowledged, (currentAcknowledged - lastAcknowledged) / interval,
+                errors.sum(), getLatency(0.5), getLatency(0.99));
+        lastTime = time;
+        lastSent = currentSent;
+        lastAcknowledged = currentAcknowledged;
+        return result;
+    }
+
+    public String summary() {
+        double duration = (System.nanoTime() - startTime) / 1e9;
+        return String.format(Locale.US,
+                "connected %d failed %d | sent %d (%.0f/s) acks %d (%.0f/s) errors %d"
+                + " | latency p50 %.1f ms p90 %.1f ms p99 %.1f ms p99.9 %.1f ms",
+                connected.sum(), failed.sum(),
+                sent.sum(), sent.sum() / duration, acknowledged.sum(), acknowledged.sum() / duration,
+                errors.sum(), getLatency(0.5), getLatency(0.9), getLatency(0.99), getLatency(0.999));
+    }
+
+}
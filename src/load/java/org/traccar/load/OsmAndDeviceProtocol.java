@@ -0,0 +1,55 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.load;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+public class OsmAndDeviceProtocol extends DeviceProtocol {
+
+    private static final ByteBuf HEADER_END = Unpooled.unreleasableBuffer(
+            Unpooled.copiedBuffer("\r\n\r\n", StandardCharsets.US_ASCII));
+
+    public OsmAndDeviceProtocol() {
+        super(5055, 1);
+    }
+
+    @Override
+    public ByteBuf encodePosition(VirtualDevice device) {
+        String request = String.format(Locale.US,
+                "GET /?id=%s&timestamp=%d&lat=%.6f&lon=%.6f&speed=%.1f&bearing=%.1f&altitude=100 HTTP/1.1\r\n"
+                + "Host: localhost\r\n\r\n",
+                device.getUniqueId(), device.getTime() / 1000, device.getLatitude(), device.getLongitude(),
+                device.getSpeed() / 1.852, device.getCourse());
+        return Unpooled.copiedBuffer(request, StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public int decodeAcknowledgements(ByteBuf buf) {
+        int count = 0;
+        int index;
+        while ((index = ByteBufUtil.indexOf(HEADER_END, buf)) >= 0) {
+            buf.readerIndex(index + HEADER_END.readableBytes());
+            count += 1;
+        }
+        return count;
+    }
+
+}
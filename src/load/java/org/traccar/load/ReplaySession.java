@@ -0,0 +1,135 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.load;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class ReplaySession {
+
+    private static final Pattern PATTERN = Pattern.compile(
+            "(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}) +\\w+: "
+            + "\\[([TU])(\\p{XDigit}+): (\\S+) ([<>]) ([^]]+)] (\\p{XDigit}+)");
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public static final class Frame {
+
+        private final long time;
+        private final byte[] data;
+        private int acknowledgements;
+
+        private Frame(long time, byte[] data) {
+            this.time = time;
+            this.data = data;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        public int getAcknowledgements() {
+            return acknowledgements;
+        }
+
+    }
+
+    private final boolean datagram;
+    private final List<Frame> frames = new ArrayList<>();
+    private final Queue<Integer> responseLengths = new ArrayDeque<>();
+
+    public ReplaySession(boolean datagram) {
+        this.datagram = datagram;
+    }
+
+    public boolean getDatagram() {
+        return datagram;
+    }
+
+    public List<Frame> getFrames() {
+        return frames;
+    }
+
+    public long getStartTime() {
+        return frames.isEmpty() ? 0 : frames.get(0).getTime();
+    }
+
+    /**
+     * Consume server responses matching the lengths of the captured responses, in order.
+     */
+    public int decodeAcknowledgements(ByteBuf buf) {
+        int count = 0;
+        Integer length;
+        while ((length = responseLengths.peek()) != null && buf.readableBytes() >= length) {
+            buf.skipBytes(responseLengths.poll());
+            count += 1;
+        }
+        if (length == null) {
+            buf.skipBytes(buf.readableBytes());
+        }
+        return count;
+    }
+
+    public static Collection<ReplaySession> read(Path file, String protocol) throws IOException {
+        Map<String, ReplaySession> sessions = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = PATTERN.matcher(line);
+                if (!matcher.find() || protocol != null && !protocol.equals(matcher.group(4))) {
+                    continue;
+                }
+                long time = LocalDateTime.parse(matcher.group(1), TIME_FORMAT)
+                        .toInstant(ZoneOffset.UTC).toEpochMilli();
+                boolean datagram = matcher.group(2).equals("U");
+                String key = matcher.group(3) + (datagram ? matcher.group(6) : "");
+                ReplaySession session = sessions.computeIfAbsent(key, k -> new ReplaySession(datagram));
+                byte[] data = ByteBufUtil.decodeHexDump(matcher.group(7));
+                if (matcher.group(5).equals("<")) {
+                    session.frames.add(new Frame(time, data));
+                } else if (!session.frames.isEmpty()) {
+                    session.frames.get(session.frames.size() - 1).acknowledgements += 1;
+                    session.responseLengths.add(data.length);
+                }
+            }
+        }
+        sessions.values().removeIf(session -> session.frames.isEmpty());
+        return sessions.values();
+    }
+
+}
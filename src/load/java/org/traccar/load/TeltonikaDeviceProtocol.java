@@ -0,0 +1,96 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.load;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.traccar.helper.Checksum;
+
+import java.nio.charset.StandardCharsets;
+
+public class TeltonikaDeviceProtocol extends DeviceProtocol {
+
+    private static final int CODEC_8 = 0x08;
+
+    private boolean identified;
+
+    public TeltonikaDeviceProtocol() {
+        super(5027, 1);
+    }
+
+    @Override
+    public ByteBuf encodeLogin(VirtualDevice device) {
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeShort(device.getUniqueId().length());
+        buf.writeCharSequence(device.getUniqueId(), StandardCharsets.US_ASCII);
+        return buf;
+    }
+
+    @Override
+    public ByteBuf encodePosition(VirtualDevice device) {
+        ByteBuf data = Unpooled.buffer();
+        data.writeByte(CODEC_8);
+        data.writeByte(1); // records
+
+        data.writeLong(device.getTime());
+        data.writeByte(0); // priority
+        data.writeInt((int) Math.round(device.getLongitude() * 10000000));
+        data.writeInt((int) Math.round(device.getLatitude() * 10000000));
+        data.writeShort(100); // altitude
+        data.writeShort((int) device.getCourse());
+        data.writeByte(8); // satellites
+        data.writeShort((int) Math.round(device.getSpeed()));
+
+        data.writeByte(0); // event
+        data.writeByte(3); // total io
+        data.writeByte(2);
+        data.writeByte(239); // ignition
+        data.writeByte(device.getSpeed() > 0 ? 1 : 0);
+        data.writeByte(21); // gsm signal
+        data.writeByte(4);
+        data.writeByte(1);
+        data.writeByte(66); // external voltage
+        data.writeShort(12600);
+        data.writeByte(0);
+        data.writeByte(0);
+
+        data.writeByte(1); // records
+
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeInt(0);
+        buf.writeInt(data.readableBytes());
+        buf.writeBytes(data);
+        buf.writeInt(Checksum.crc16(Checksum.CRC16_IBM, data.nioBuffer()));
+        data.release();
+        return buf;
+    }
+
+    @Override
+    public int decodeAcknowledgements(ByteBuf buf) {
+        int count = 0;
+        if (!identified && buf.isReadable()) {
+            buf.skipBytes(1);
+            identified = true;
+            count += 1;
+        }
+        while (identified && buf.readableBytes() >= 4) {
+            buf.skipBytes(4);
+            count += 1;
+        }
+        return count;
+    }
+
+}
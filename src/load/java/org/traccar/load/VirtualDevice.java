@@ -0,0 +1,94 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.load;
+
+import java.util.Random;
+
+public class VirtualDevice {
+
+    private static final double EARTH_RADIUS = 6371000.0;
+    private static final double MAX_SPEED = 110.0;
+
+    private final String uniqueId;
+    private final Random random;
+
+    private long time;
+    private double latitude;
+    private double longitude;
+    private double speed;
+    private double course;
+    private int index;
+
+    public VirtualDevice(String uniqueId, double latitude, double longitude, long seed) {
+        this.uniqueId = uniqueId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        random = new Random(seed);
+        speed = random.nextDouble() * MAX_SPEED;
+        course = random.nextDouble() * 360;
+        time = System.currentTimeMillis();
+    }
+
+    public String getUniqueId() {
+        return uniqueId;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * Speed in km/h.
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    public double getCourse() {
+        return course;
+    }
+
+    public int nextIndex() {
+        index = (index + 1) & 0xffff;
+        return index;
+    }
+
+    public void move(long currentTime) {
+        double seconds = (currentTime - time) / 1000.0;
+        time = currentTime;
+
+        if (random.nextDouble() < 0.02) {
+            speed = 0;
+        } else {
+            speed = Math.max(0, Math.min(MAX_SPEED, speed + random.nextGaussian() * 5));
+        }
+        course = (course + random.nextGaussian() * 15 + 360) % 360;
+
+        double distance = speed / 3.6 * seconds;
+        latitude += Math.toDegrees(distance * Math.cos(Math.toRadians(course)) / EARTH_RADIUS);
+        longitude += Math.toDegrees(distance * Math.sin(Math.toRadians(course))
+                / (EARTH_RADIUS * Math.cos(Math.toRadians(latitude))));
+    }
+
+}
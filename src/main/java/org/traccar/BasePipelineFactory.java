@@ -23,6 +23,7 @@ import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOutboundHandler;
 import io.netty.channel.ChannelPipeline;
 import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.EventExecutorGroup;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
 import org.traccar.handler.AcknowledgementHandler;
@@ -40,6 +41,7 @@ import org.traccar.handler.MotionHandler;
 import org.traccar.handler.NetworkForwarderHandler;
 import org.traccar.handler.NetworkMessageHandler;
 import org.traccar.handler.OpenChannelHandler;
+import org.traccar.handler.ProcessingDispatchHandler;
 import org.traccar.handler.RemoteAddressHandler;
 import org.traccar.handler.SpeedLimitHandler;
 import org.traccar.handler.StandardLoggingHandler;
@@ -55,6 +57,7 @@ import org.traccar.handler.events.MaintenanceEventHandler;
 import org.traccar.handler.events.MediaEventHandler;
 import org.traccar.handler.events.MotionEventHandler;
 import org.traccar.handler.events.OverspeedEventHandler;
+import org.traccar.metrics.PositionTracer;
 
 import java.util.Map;
 
@@ -65,6 +68,9 @@ public abstract class BasePipelineFactory extends ChannelInitializer<Channel> {
     private final Config config;
     private final String protocol;
     private final int timeout;
+    private final EventExecutorGroup processingGroup;
+    private final boolean batchEnabled;
+    private final PositionTracer positionTracer;
 
     public BasePipelineFactory(TrackerConnector connector, Config config, String protocol) {
         this.injector = Main.getInjector();
@@ -77,6 +83,9 @@ public abstract class BasePipelineFactory extends ChannelInitializer<Channel> {
         } else {
             this.timeout = timeout;
         }
+        processingGroup = injector.getInstance(EventExecutorGroup.class);
+        batchEnabled = config.getInteger(Keys.DATABASE_BATCH_SIZE) > 0;
+        positionTracer = injector.getInstance(PositionTracer.class);
     }
 
     protected abstract void addTransportHandlers(PipelineBuilder pipeline);
@@ -84,10 +93,15 @@ public abstract class BasePipelineFactory extends ChannelInitializer<Channel> {
     protected abstract void addProtocolHandlers(PipelineBuilder pipeline);
 
     @SafeVarargs
-    private void addHandlers(ChannelPipeline pipeline, Class<? extends ChannelHandler>... handlerClasses) {
+    private void addHandlers(
+            ChannelPipeline pipeline, EventExecutorGroup group, Class<? extends ChannelHandler>... handlerClasses) {
         for (Class<? extends ChannelHandler> handlerClass : handlerClasses) {
             if (handlerClass != null) {
-                pipeline.addLast(injector.getInstance(handlerClass));
+                ChannelHandler handler = injector.getInstance(handlerClass);
+                if (handler != null && positionTracer.isEnabled()) {
+                    handler = new TracingInboundHandler((ChannelInboundHandler) handler, positionTracer);
+                }
+                pipeline.addLast(group, handler);
             }
         }
     }
@@ -142,8 +156,17 @@ public abstract class BasePipelineFactory extends ChannelInitializer<Channel> {
             pipeline.addLast(handler);
         });
 
+        ProcessingExecutor executor = null;
+        if (processingGroup != null) {
+            executor = new ProcessingExecutor(processingGroup);
+        }
+        if (executor != null || batchEnabled) {
+            pipeline.addLast(new ProcessingDispatchHandler(executor));
+        }
+
         addHandlers(
                 pipeline,
+                executor,
                 TimeHandler.class,
                 GeolocationHandler.class,
                 HemisphereHandler.class,
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2012 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,6 +23,7 @@ import org.traccar.database.MediaManager;
 import org.traccar.database.StatisticsManager;
 import org.traccar.helper.UnitsConverter;
 import org.traccar.helper.model.AttributeUtil;
+import org.traccar.metrics.MetricsRegistry;
 import org.traccar.model.Command;
 import org.traccar.model.Device;
 import org.traccar.model.Position;
@@ -39,6 +40,7 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.LongAdder;
 
 public abstract class BaseProtocolDecoder extends ExtendedObjectDecoder {
 
@@ -51,6 +53,7 @@ public abstract class BaseProtocolDecoder extends ExtendedObjectDecoder {
     private StatisticsManager statisticsManager;
     private MediaManager mediaManager;
     private CommandsManager commandsManager;
+    private LongAdder messagesDecoded;
 
     public BaseProtocolDecoder(Protocol protocol) {
         this.protocol = protocol;
@@ -75,6 +78,13 @@ public abstract class BaseProtocolDecoder extends ExtendedObjectDecoder {
         this.statisticsManager = statisticsManager;
     }
 
+    @Inject
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        messagesDecoded = metricsRegistry.counter(
+                "traccar_messages_decoded_total", "Messages decoded by protocol", "protocol")
+                .labels(getProtocolName());
+    }
+
     @Inject
     public void setMediaManager(MediaManager mediaManager) {
         this.mediaManager = mediaManager;
@@ -173,6 +183,9 @@ public abstract class BaseProtocolDecoder extends ExtendedObjectDecoder {
         if (statisticsManager != null) {
             statisticsManager.registerMessageReceived();
         }
+        if (messagesDecoded != null) {
+            messagesDecoded.increment();
+        }
         Set<Long> deviceIds = new HashSet<>();
         if (decodedMessage != null) {
             if (decodedMessage instanceof Position) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012 - 2018 Anton Tananaev (anton@traccar.org)
+ * Copyright 2012 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,22 +16,97 @@
 package org.traccar;
 
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
 
 public final class EventLoopGroupFactory {
 
-    private static EventLoopGroup bossGroup = new NioEventLoopGroup();
-    private static EventLoopGroup workerGroup = new NioEventLoopGroup();
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventLoopGroupFactory.class);
+
+    private static boolean epoll;
+    private static EventLoopGroup bossGroup;
+    private static EventLoopGroup workerGroup;
+    private static final Map<String, EventLoopGroup> PROTOCOL_GROUPS = new ConcurrentHashMap<>();
 
     private EventLoopGroupFactory() {
     }
 
-    public static EventLoopGroup getBossGroup() {
+    private static synchronized void initialize(Config config) {
+        if (bossGroup == null) {
+            if (config.getBoolean(Keys.SERVER_EPOLL)) {
+                if (Epoll.isAvailable()) {
+                    epoll = true;
+                } else {
+                    LOGGER.warn("Native epoll transport is not available", Epoll.unavailabilityCause());
+                }
+            }
+            bossGroup = createGroup(config.getInteger(Keys.SERVER_BOSS_THREADS), null);
+            workerGroup = createGroup(config.getInteger(Keys.SERVER_WORKER_THREADS), null);
+        }
+    }
+
+    private static EventLoopGroup createGroup(int threads, ThreadFactory threadFactory) {
+        if (epoll) {
+            return new EpollEventLoopGroup(threads, threadFactory);
+        } else {
+            return new NioEventLoopGroup(threads, threadFactory);
+        }
+    }
+
+    public static boolean isEpoll(Config config) {
+        initialize(config);
+        return epoll;
+    }
+
+    public static EventLoopGroup getBossGroup(Config config) {
+        initialize(config);
         return bossGroup;
     }
 
-    public static EventLoopGroup getWorkerGroup() {
+    public static EventLoopGroup getWorkerGroup(Config config) {
+        initialize(config);
         return workerGroup;
     }
 
+    public static EventLoopGroup getWorkerGroup(Config config, String protocol) {
+        initialize(config);
+        int threads = config.getInteger(Keys.PROTOCOL_WORKER_THREADS.withPrefix(protocol));
+        if (threads > 0) {
+            return PROTOCOL_GROUPS.computeIfAbsent(
+                    protocol, key -> createGroup(threads, new DefaultThreadFactory(protocol + "-worker")));
+        }
+        return workerGroup;
+    }
+
+    public static Class<? extends ServerChannel> getServerChannelClass(Config config) {
+        return isEpoll(config) ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    public static Class<? extends SocketChannel> getSocketChannelClass(Config config) {
+        return isEpoll(config) ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    public static Class<? extends DatagramChannel> getDatagramChannelClass(Config config) {
+        return isEpoll(config) ? EpollDatagramChannel.class : NioDatagramChannel.class;
+    }
+
 }
@@ -21,21 +21,29 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.util.ReferenceCountUtil;
+import org.traccar.archive.RawArchive;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
 import org.traccar.handler.AcknowledgementHandler;
 import org.traccar.helper.DataConverter;
+import org.traccar.metrics.DecodeEvent;
+import org.traccar.metrics.PositionTracer;
 import org.traccar.model.Position;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.net.SocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
 public abstract class ExtendedObjectDecoder extends ChannelInboundHandlerAdapter {
 
     private Config config;
+    private PositionTracer positionTracer;
+    private RawArchive rawArchive;
+    private boolean saveOriginal;
 
     public Config getConfig() {
         return config;
@@ -44,24 +52,63 @@ public abstract class ExtendedObjectDecoder extends ChannelInboundHandlerAdapter
     @Inject
     public void setConfig(Config config) {
         this.config = config;
+        saveOriginal = config.getBoolean(Keys.DATABASE_SAVE_ORIGINAL);
         init();
     }
 
+    @Inject
+    public void setPositionTracer(PositionTracer positionTracer) {
+        this.positionTracer = positionTracer;
+    }
+
+    @Inject
+    public void setRawArchive(@Nullable RawArchive rawArchive) {
+        this.rawArchive = rawArchive;
+    }
+
     /**
      * Method called when config is initialized.
      */
     protected void init() {
     }
 
-    private void saveOriginal(Object decodedMessage, Object originalMessage) {
-        if (getConfig().getBoolean(Keys.DATABASE_SAVE_ORIGINAL) && decodedMessage instanceof Position) {
-            Position position = (Position) decodedMessage;
-            if (originalMessage instanceof ByteBuf) {
-                ByteBuf buf = (ByteBuf) originalMessage;
-                position.set(Position.KEY_ORIGINAL, ByteBufUtil.hexDump(buf, 0, buf.writerIndex()));
-            } else if (originalMessage instanceof String) {
-                position.set(Position.KEY_ORIGINAL, DataConverter.printHex(
-                        ((String) originalMessage).getBytes(StandardCharsets.US_ASCII)));
+    private void startTrace(Object decodedMessage, long startTime) {
+        if (positionTracer != null && decodedMessage instanceof Position) {
+            positionTracer.start((Position) decodedMessage, startTime);
+        }
+    }
+
+    private void saveOriginal(Collection<?> decodedMessages, Object originalMessage) {
+        if (!saveOriginal) {
+            return;
+        }
+        if (rawArchive != null) {
+            List<Position> positions = new ArrayList<>();
+            for (Object decodedMessage : decodedMessages) {
+                if (decodedMessage instanceof Position) {
+                    positions.add((Position) decodedMessage);
+                }
+            }
+            if (!positions.isEmpty()) {
+                if (originalMessage instanceof ByteBuf) {
+                    ByteBuf buf = (ByteBuf) originalMessage;
+                    rawArchive.addFrame(positions, ByteBufUtil.getBytes(buf, 0, buf.writerIndex()));
+                } else if (originalMessage instanceof String) {
+                    rawArchive.addFrame(positions, ((String) originalMessage).getBytes(StandardCharsets.US_ASCII));
+                }
+            }
+        } else {
+            for (Object decodedMessage : decodedMessages) {
+                if (decodedMessage instanceof Position) {
+                    Position position = (Position) decodedMessage;
+                    if (originalMessage instanceof ByteBuf) {
+                        ByteBuf buf = (ByteBuf) originalMessage;
+                        position.set(Position.KEY_ORIGINAL, ByteBufUtil.hexDump(buf, 0, buf.writerIndex()));
+                    } else if (originalMessage instanceof String) {
+                        position.set(Position.KEY_ORIGINAL, DataConverter.printHex(
+                                ((String) originalMessage).getBytes(StandardCharsets.US_ASCII)));
+                    }
+                }
             }
         }
     }
@@ -70,9 +117,31 @@ public abstract class ExtendedObjectDecoder extends ChannelInboundHandlerAdapter
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         NetworkMessage networkMessage = (NetworkMessage) msg;
         Object originalMessage = networkMessage.getMessage();
+        long startTime = System.nanoTime();
         ctx.writeAndFlush(new AcknowledgementHandler.EventReceived());
         try {
+            DecodeEvent event = new DecodeEvent();
+            int size = 0;
+            if (event.isEnabled()) {
+                if (originalMessage instanceof ByteBuf) {
+                    size = ((ByteBuf) originalMessage).readableBytes();
+                } else if (originalMessage instanceof String) {
+                    size = ((String) originalMessage).length();
+                }
+                event.begin();
+            }
             Object decodedMessage = decode(ctx.channel(), networkMessage.getRemoteAddress(), originalMessage);
+            event.end();
+            if (event.shouldCommit()) {
+                event.setProtocol(getProtocolName());
+                event.setBytes(size);
+                if (decodedMessage instanceof Collection) {
+                    event.setPositions(((Collection<?>) decodedMessage).size());
+                } else {
+                    event.setPositions(decodedMessage instanceof Position ? 1 : 0);
+                }
+                event.commit();
+            }
             onMessageEvent(ctx.channel(), networkMessage.getRemoteAddress(), originalMessage, decodedMessage);
             if (decodedMessage == null) {
                 decodedMessage = handleEmptyMessage(ctx.channel(), networkMessage.getRemoteAddress(), originalMessage);
@@ -81,13 +150,15 @@ public abstract class ExtendedObjectDecoder extends ChannelInboundHandlerAdapter
                 if (decodedMessage instanceof Collection) {
                     var collection = (Collection) decodedMessage;
                     ctx.writeAndFlush(new AcknowledgementHandler.EventDecoded(collection));
+                    saveOriginal(collection, originalMessage);
                     for (Object o : collection) {
-                        saveOriginal(o, originalMessage);
+                        startTrace(o, startTime);
                         ctx.fireChannelRead(o);
                     }
                 } else {
                     ctx.writeAndFlush(new AcknowledgementHandler.EventDecoded(List.of(decodedMessage)));
-                    saveOriginal(decodedMessage, originalMessage);
+                    startTrace(decodedMessage, startTime);
+                    saveOriginal(List.of(decodedMessage), originalMessage);
                     ctx.fireChannelRead(decodedMessage);
                 }
             } else {
@@ -106,6 +177,8 @@ public abstract class ExtendedObjectDecoder extends ChannelInboundHandlerAdapter
         return null;
     }
 
+    public abstract String getProtocolName();
+
     protected abstract Object decode(Channel channel, SocketAddress remoteAddress, Object msg) throws Exception;
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2012 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,9 +19,16 @@ import com.google.inject.Guice;
 import com.google.inject.Injector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.traccar.api.AsyncSocketDispatcher;
+import org.traccar.archive.RawArchive;
 import org.traccar.broadcast.BroadcastService;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.database.DeviceLookupService;
 import org.traccar.helper.model.DeviceUtil;
 import org.traccar.schedule.ScheduleManager;
+import org.traccar.session.cache.CacheManager;
+import org.traccar.storage.BatchWriter;
 import org.traccar.storage.DatabaseModule;
 import org.traccar.storage.Storage;
 import org.traccar.web.WebModule;
@@ -48,6 +55,10 @@ public final class Main {
         return injector;
     }
 
+    static void setInjector(Injector injector) {
+        Main.injector = injector;
+    }
+
     private Main() {
     }
 
@@ -126,8 +137,14 @@ public final class Main {
                 DeviceUtil.resetStatus(injector.getInstance(Storage.class));
             }
 
+            if (injector.getInstance(Config.class).getBoolean(Keys.DATABASE_PRELOAD)) {
+                var devices = injector.getInstance(CacheManager.class).preload();
+                injector.getInstance(DeviceLookupService.class).preload(devices);
+            }
+
             var services = Stream.of(
-                    ServerManager.class, WebServer.class, ScheduleManager.class, BroadcastService.class)
+                    ServerManager.class, WebServer.class, AsyncSocketDispatcher.class, ScheduleManager.class,
+                    BroadcastService.class, BatchWriter.class, RawArchive.class)
                     .map(injector::getInstance)
                     .filter(Objects::nonNull)
                     .collect(Collectors.toList());
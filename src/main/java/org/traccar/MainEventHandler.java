@@ -1,5 +1,5 @@
 /*
- * Copyright 2012 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2012 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,13 +28,15 @@ import org.traccar.config.Config;
 import org.traccar.config.Keys;
 import org.traccar.database.StatisticsManager;
 import org.traccar.handler.AcknowledgementHandler;
-import org.traccar.helper.DateUtil;
 import org.traccar.helper.NetworkUtil;
+import org.traccar.helper.StringUtil;
 import org.traccar.helper.model.PositionUtil;
+import org.traccar.metrics.PositionTracer;
 import org.traccar.model.Device;
 import org.traccar.model.Position;
 import org.traccar.session.ConnectionManager;
 import org.traccar.session.cache.CacheManager;
+import org.traccar.session.cache.LatestPositionCache;
 import org.traccar.storage.Storage;
 import org.traccar.storage.StorageException;
 import org.traccar.storage.query.Columns;
@@ -43,6 +45,8 @@ import org.traccar.storage.query.Request;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -54,22 +58,31 @@ public class MainEventHandler extends ChannelInboundHandlerAdapter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MainEventHandler.class);
 
+    private static final DateTimeFormatter TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private static final ThreadLocal<StringBuilder> LOG_BUILDER = ThreadLocal.withInitial(StringBuilder::new);
+
     private final Set<String> connectionlessProtocols = new HashSet<>();
     private final Set<String> logAttributes = new LinkedHashSet<>();
 
     private final CacheManager cacheManager;
+    private final LatestPositionCache latestPositionCache;
     private final Storage storage;
     private final ConnectionManager connectionManager;
     private final StatisticsManager statisticsManager;
+    private final PositionTracer positionTracer;
 
     @Inject
     public MainEventHandler(
-            Config config, CacheManager cacheManager, Storage storage, ConnectionManager connectionManager,
-            StatisticsManager statisticsManager) {
+            Config config, CacheManager cacheManager, LatestPositionCache latestPositionCache, Storage storage,
+            ConnectionManager connectionManager, StatisticsManager statisticsManager, PositionTracer positionTracer) {
         this.cacheManager = cacheManager;
+        this.latestPositionCache = latestPositionCache;
         this.storage = storage;
         this.connectionManager = connectionManager;
         this.statisticsManager = statisticsManager;
+        this.positionTracer = positionTracer;
         String connectionlessProtocolList = config.getString(Keys.STATUS_IGNORE_OFFLINE);
         if (connectionlessProtocolList != null) {
             connectionlessProtocols.addAll(Arrays.asList(connectionlessProtocolList.split("[, ]")));
@@ -77,6 +90,55 @@ public class MainEventHandler extends ChannelInboundHandlerAdapter {
         logAttributes.addAll(Arrays.asList(config.getString(Keys.LOGGER_ATTRIBUTES).split("[, ]")));
     }
 
+    private String formatPosition(ChannelHandlerContext ctx, Device device, Position position) {
+        StringBuilder builder = LOG_BUILDER.get();
+        builder.setLength(0);
+        builder.append("[").append(NetworkUtil.session(ctx.channel())).append("] ");
+        builder.append("id: ").append(device.getUniqueId());
+        for (String attribute : logAttributes) {
+            switch (attribute) {
+                case "time":
+                    builder.append(", time: ");
+                    TIME_FORMATTER.formatTo(position.getFixTime().toInstant(), builder);
+                    break;
+                case "position":
+                    StringUtil.appendDecimal(builder.append(", lat: "), position.getLatitude(), 5);
+                    StringUtil.appendDecimal(builder.append(", lon: "), position.getLongitude(), 5);
+                    break;
+                case "speed":
+                    if (position.getSpeed() > 0) {
+                        StringUtil.appendDecimal(builder.append(", speed: "), position.getSpeed(), 1);
+                    }
+                    break;
+                case "course":
+                    StringUtil.appendDecimal(builder.append(", course: "), position.getCourse(), 1);
+                    break;
+                case "accuracy":
+                    if (position.getAccuracy() > 0) {
+                        StringUtil.appendDecimal(builder.append(", accuracy: "), position.getAccuracy(), 1);
+                    }
+                    break;
+                case "outdated":
+                    if (position.getOutdated()) {
+                        builder.append(", outdated");
+                    }
+                    break;
+                case "invalid":
+                    if (!position.getValid()) {
+                        builder.append(", invalid");
+                    }
+                    break;
+                default:
+                    Object value = position.getAttributes().get(attribute);
+                    if (value != null) {
+                        builder.append(", ").append(attribute).append(": ").append(value);
+                    }
+                    break;
+            }
+        }
+        return builder.toString();
+    }
+
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
         if (msg instanceof Position) {
@@ -94,60 +156,22 @@ public class MainEventHandler extends ChannelInboundHandlerAdapter {
                             new Condition.Equals("id", updatedDevice.getId())));
 
                     cacheManager.updatePosition(position);
+                    latestPositionCache.update(position);
                     connectionManager.updatePosition(true, position);
                 }
             } catch (StorageException error) {
                 LOGGER.warn("Failed to update device", error);
             }
 
-            StringBuilder builder = new StringBuilder();
-            builder.append("[").append(NetworkUtil.session(ctx.channel())).append("] ");
-            builder.append("id: ").append(device.getUniqueId());
-            for (String attribute : logAttributes) {
-                switch (attribute) {
-                    case "time":
-                        builder.append(", time: ").append(DateUtil.formatDate(position.getFixTime(), false));
-                        break;
-                    case "position":
-                        builder.append(", lat: ").append(String.format("%.5f", position.getLatitude()));
-                        builder.append(", lon: ").append(String.format("%.5f", position.getLongitude()));
-                        break;
-                    case "speed":
-                        if (position.getSpeed() > 0) {
-                            builder.append(", speed: ").append(String.format("%.1f", position.getSpeed()));
-                        }
-                        break;
-                    case "course":
-                        builder.append(", course: ").append(String.format("%.1f", position.getCourse()));
-                        break;
-                    case "accuracy":
-                        if (position.getAccuracy() > 0) {
-                            builder.append(", accuracy: ").append(String.format("%.1f", position.getAccuracy()));
-                        }
-                        break;
-                    case "outdated":
-                        if (position.getOutdated()) {
-                            builder.append(", outdated");
-                        }
-                        break;
-                    case "invalid":
-                        if (!position.getValid()) {
-                            builder.append(", invalid");
-                        }
-                        break;
-                    default:
-                        Object value = position.getAttributes().get(attribute);
-                        if (value != null) {
-                            builder.append(", ").append(attribute).append(": ").append(value);
-                        }
-                        break;
-                }
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info(formatPosition(ctx, device, position));
             }
-            LOGGER.info(builder.toString());
 
             statisticsManager.registerMessageStored(position.getDeviceId(), position.getProtocol());
 
             ctx.writeAndFlush(new AcknowledgementHandler.EventHandled(position));
+
+            positionTracer.complete(position);
         }
     }
 
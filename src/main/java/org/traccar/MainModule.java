@@ -25,7 +25,11 @@ import com.google.inject.Scopes;
 import com.google.inject.name.Names;
 import io.netty.util.HashedWheelTimer;
 import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutorGroup;
 import org.apache.velocity.app.VelocityEngine;
+import org.traccar.archive.RawArchive;
 import org.traccar.broadcast.BroadcastService;
 import org.traccar.broadcast.MulticastBroadcastService;
 import org.traccar.broadcast.NullBroadcastService;
@@ -78,6 +82,7 @@ import org.traccar.helper.WebHelper;
 import org.traccar.mail.LogMailManager;
 import org.traccar.mail.MailManager;
 import org.traccar.mail.SmtpMailManager;
+import org.traccar.metrics.MetricsRegistry;
 import org.traccar.session.cache.CacheManager;
 import org.traccar.sms.HttpSmsClient;
 import org.traccar.sms.SmsManager;
@@ -124,6 +129,16 @@ public class MainModule extends AbstractModule {
         }
     }
 
+    @Singleton
+    @Provides
+    public static EventExecutorGroup provideProcessingExecutorGroup(Config config) {
+        int threads = config.getInteger(Keys.SERVER_PROCESSING_THREADS);
+        if (threads > 0) {
+            return new DefaultEventExecutorGroup(threads, new DefaultThreadFactory("processing"));
+        }
+        return null;
+    }
+
     @Singleton
     @Provides
     public static ObjectMapper provideObjectMapper(Config config) {
@@ -320,9 +335,9 @@ public class MainModule extends AbstractModule {
     @Singleton
     @Provides
     public static GeocoderHandler provideGeocoderHandler(
-            Config config, @Nullable Geocoder geocoder, CacheManager cacheManager) {
+            Config config, @Nullable Geocoder geocoder, CacheManager cacheManager, MetricsRegistry metricsRegistry) {
         if (geocoder != null) {
-            return new GeocoderHandler(config, geocoder, cacheManager);
+            return new GeocoderHandler(config, geocoder, cacheManager, metricsRegistry);
         }
         return null;
     }
@@ -336,6 +351,15 @@ public class MainModule extends AbstractModule {
         return null;
     }
 
+    @Singleton
+    @Provides
+    public static RawArchive provideRawArchive(Config config) throws IOException {
+        if (config.getBoolean(Keys.DATABASE_SAVE_ORIGINAL) && config.hasKey(Keys.DATABASE_ARCHIVE_PATH)) {
+            return new RawArchive(config);
+        }
+        return null;
+    }
+
     @Singleton
     @Provides
     public static BroadcastService provideBroadcastService(
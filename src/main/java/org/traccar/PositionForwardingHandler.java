@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2015 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -70,6 +70,10 @@ public class PositionForwardingHandler extends BaseDataHandler {
         this.deliveryPending = new AtomicInteger();
     }
 
+    public int getDeliveryPending() {
+        return deliveryPending.get();
+    }
+
     class AsyncRequestAndCallback implements ResultHandler, TimerTask {
 
         private final PositionData positionData;
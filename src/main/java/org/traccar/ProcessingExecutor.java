@@ -0,0 +1,118 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.concurrent.AbstractEventExecutor;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.Future;
+import org.traccar.model.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor for processing handlers of a single channel. Netty pins all handlers of a channel to one thread of a group,
+ * which serializes every device on a shared UDP channel. Instead, each position is passed to the thread selected by
+ * its device id, so messages of one device stay in order while different devices are processed in parallel. Handlers
+ * invoked on any thread of the group run inline, so the whole chain completes on the device thread. Asynchronous
+ * handlers must resume processing with {@link #fireChannelRead(ChannelHandlerContext, Position)}, other events are
+ * executed on a fixed thread of the channel.
+ */
+public class ProcessingExecutor extends AbstractEventExecutor {
+
+    private final EventExecutor[] executors;
+    private final EventExecutor defaultExecutor;
+
+    public ProcessingExecutor(EventExecutorGroup group) {
+        super(group);
+        List<EventExecutor> list = new ArrayList<>();
+        group.forEach(list::add);
+        executors = list.toArray(new EventExecutor[0]);
+        defaultExecutor = group.next();
+    }
+
+    public EventExecutor select(long deviceId) {
+        return executors[Math.floorMod(deviceId, executors.length)];
+    }
+
+    /**
+     * Pass position to the next handler on the thread of its device. Must be used instead of
+     * {@link ChannelHandlerContext#fireChannelRead(Object)} when processing continues from a callback.
+     */
+    public static void fireChannelRead(ChannelHandlerContext ctx, Position position) {
+        if (ctx.executor() instanceof ProcessingExecutor) {
+            EventExecutor executor = ((ProcessingExecutor) ctx.executor()).select(position.getDeviceId());
+            if (!executor.inEventLoop()) {
+                executor.execute(() -> ctx.fireChannelRead(position));
+                return;
+            }
+        }
+        ctx.fireChannelRead(position);
+    }
+
+    @Override
+    public boolean inEventLoop(Thread thread) {
+        for (EventExecutor executor : executors) {
+            if (executor.inEventLoop(thread)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        defaultExecutor.execute(task);
+    }
+    @Override
+    public boolean isShuttingDown() {
+        return parent().isShuttingDown();
+    }
+
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        return terminationFuture();
+    }
+
+    @Override
+    public Future<?> terminationFuture() {
+        return parent().terminationFuture();
+    }
+
+    @Override
+    @Deprecated
+    public void shutdown() {
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return parent().isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return parent().isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return parent().awaitTermination(timeout, unit);
+    }
+
+}
@@ -16,12 +16,14 @@
 package org.traccar;
 
 import com.google.inject.Injector;
+import io.netty.util.concurrent.EventExecutorGroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
 import org.traccar.helper.ClassScanner;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.IOException;
@@ -43,10 +45,13 @@ public class ServerManager implements LifecycleObject {
 
     private final List<TrackerConnector> connectorList = new LinkedList<>();
     private final Map<String, BaseProtocol> protocolList = new ConcurrentHashMap<>();
+    private final EventExecutorGroup processingGroup;
 
     @Inject
     public ServerManager(
-            Injector injector, Config config) throws IOException, URISyntaxException, ReflectiveOperationException {
+            Injector injector, Config config, @Nullable EventExecutorGroup processingGroup)
+            throws IOException, URISyntaxException, ReflectiveOperationException {
+        this.processingGroup = processingGroup;
         Set<String> enabledProtocols = null;
         if (config.hasKey(Keys.PROTOCOLS_ENABLE)) {
             enabledProtocols = new HashSet<>(Arrays.asList(config.getString(Keys.PROTOCOLS_ENABLE).split("[, ]")));
@@ -87,6 +92,9 @@ public class ServerManager implements LifecycleObject {
                 connector.stop();
             }
         } finally {
+            if (processingGroup != null) {
+                processingGroup.shutdownGracefully().awaitUninterruptibly();
+            }
             GlobalTimer.release();
         }
     }
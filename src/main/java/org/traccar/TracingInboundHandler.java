@@ -0,0 +1,42 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandler;
+import org.traccar.metrics.PositionTracer;
+import org.traccar.model.Position;
+
+public class TracingInboundHandler extends WrapperInboundHandler {
+
+    private final PositionTracer positionTracer;
+    private final String stage;
+
+    public TracingInboundHandler(ChannelInboundHandler handler, PositionTracer positionTracer) {
+        super(handler);
+        this.positionTracer = positionTracer;
+        this.stage = handler.getClass().getSimpleName();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof Position) {
+            positionTracer.stage((Position) msg, stage);
+        }
+        getWrappedHandler().channelRead(ctx, msg);
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2012 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,21 +19,27 @@ import io.netty.bootstrap.AbstractBootstrap;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
-import io.netty.channel.socket.nio.NioDatagramChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.util.concurrent.GlobalEventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 
 public abstract class TrackerServer implements TrackerConnector {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrackerServer.class);
+
     private final boolean datagram;
     private final boolean secure;
 
@@ -42,6 +48,7 @@ public abstract class TrackerServer implements TrackerConnector {
 
     private final int port;
     private final String address;
+    private final int channels;
 
     private final ChannelGroup channelGroup = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
 
@@ -81,14 +88,26 @@ public abstract class TrackerServer implements TrackerConnector {
 
         this.datagram = datagram;
         if (datagram) {
-            bootstrap = new Bootstrap()
-                    .group(EventLoopGroupFactory.getWorkerGroup())
-                    .channel(NioDatagramChannel.class)
+            int udpChannels = config.getInteger(Keys.PROTOCOL_UDP_CHANNELS.withPrefix(protocol), 1);
+            Bootstrap datagramBootstrap = new Bootstrap()
+                    .group(EventLoopGroupFactory.getWorkerGroup(config, protocol))
+                    .channel(EventLoopGroupFactory.getDatagramChannelClass(config))
                     .handler(pipelineFactory);
+            if (udpChannels > 1 && !EventLoopGroupFactory.isEpoll(config)) {
+                LOGGER.warn("Multiple UDP channels require epoll transport, using single channel for {}", protocol);
+                udpChannels = 1;
+            }
+            if (udpChannels > 1) {
+                datagramBootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+            }
+            bootstrap = datagramBootstrap;
+            channels = udpChannels;
         } else {
+            channels = 1;
             bootstrap = new ServerBootstrap()
-                    .group(EventLoopGroupFactory.getBossGroup(), EventLoopGroupFactory.getWorkerGroup())
-                    .channel(NioServerSocketChannel.class)
+                    .group(EventLoopGroupFactory.getBossGroup(config),
+                            EventLoopGroupFactory.getWorkerGroup(config, protocol))
+                    .channel(EventLoopGroupFactory.getServerChannelClass(config))
                     .childHandler(pipelineFactory);
         }
     }
@@ -117,6 +136,19 @@ public abstract class TrackerServer implements TrackerConnector {
             endpoint = new InetSocketAddress(address, port);
         }
 
+        if (channels > 1) {
+            List<EventLoop> eventLoops = new ArrayList<>();
+            bootstrap.config().group().forEach(executor -> eventLoops.add((EventLoop) executor));
+            for (int i = 0; i < channels; i++) {
+                bind(((Bootstrap) bootstrap).clone(eventLoops.get(i % eventLoops.size())), endpoint);
+            }
+        } else {
+            bind(bootstrap, endpoint);
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private void bind(AbstractBootstrap bootstrap, InetSocketAddress endpoint) {
         Channel channel = bootstrap.bind(endpoint).syncUninterruptibly().channel();
         if (channel != null) {
             getChannelGroup().add(channel);
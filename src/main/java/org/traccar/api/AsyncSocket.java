@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2015 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,21 +18,38 @@ package org.traccar.api;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
 import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.traccar.helper.model.PositionUtil;
+import org.traccar.model.BaseModel;
+import org.traccar.model.Group;
+import org.traccar.model.User;
 import org.traccar.session.ConnectionManager;
+import org.traccar.session.cache.LatestPositionCache;
 import org.traccar.model.Device;
 import org.traccar.model.Event;
 import org.traccar.model.Position;
 import org.traccar.storage.Storage;
 import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Request;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public class AsyncSocket extends WebSocketAdapter implements ConnectionManager.UpdateListener {
 
@@ -42,69 +59,378 @@ public class AsyncSocket extends WebSocketAdapter implements ConnectionManager.U
     private static final String KEY_POSITIONS = "positions";
     private static final String KEY_EVENTS = "events";
 
+    private static final int MAX_PENDING_EVENTS = 1000;
+
     private final ObjectMapper objectMapper;
     private final ConnectionManager connectionManager;
     private final Storage storage;
+    private final LatestPositionCache latestPositionCache;
+    private final AsyncSocketDispatcher dispatcher;
     private final long userId;
+    private final CompactPositionEncoder compactEncoder;
+    private final Object sendLock = new Object();
+
+    private Map<Long, Device> pendingDevices = new LinkedHashMap<>();
+    private Map<Long, Position> pendingPositions = new LinkedHashMap<>();
+    private List<Position> pendingPositionList = new ArrayList<>();
+    private List<Event> pendingEvents = new ArrayList<>();
+    private boolean pending;
+    private long blockedSince;
+    private boolean closed;
+
+    private volatile AsyncSocketSubscription subscription;
+    private final Map<Long, Long> positionTimes = new HashMap<>();
 
-    public AsyncSocket(ObjectMapper objectMapper, ConnectionManager connectionManager, Storage storage, long userId) {
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicInteger queuedFrames = new AtomicInteger();
+
+    public AsyncSocket(
+            ObjectMapper objectMapper, ConnectionManager connectionManager, Storage storage,
+            LatestPositionCache latestPositionCache, AsyncSocketDispatcher dispatcher, long userId) {
         this.objectMapper = objectMapper;
         this.connectionManager = connectionManager;
         this.storage = storage;
+        this.latestPositionCache = latestPositionCache;
+        this.dispatcher = dispatcher;
         this.userId = userId;
+        compactEncoder = new CompactPositionEncoder(objectMapper);
+    }
+
+    public long getQueuedBytes() {
+        return queuedBytes.get();
     }
 
     @Override
     public void onWebSocketConnect(Session session) {
         super.onWebSocketConnect(session);
+        dispatcher.register(this);
 
         try {
-            Map<String, Collection<?>> data = new HashMap<>();
-            data.put(KEY_POSITIONS, PositionUtil.getLatestPositions(storage, userId));
-            sendData(data);
+            sendLatestPositions(false);
             connectionManager.addListener(userId, this);
         } catch (StorageException e) {
             throw new RuntimeException(e);
         }
     }
 
+    @Override
+    public void onWebSocketText(String message) {
+        super.onWebSocketText(message);
+
+        try {
+            var subscription = objectMapper.readValue(message, AsyncSocketSubscription.class);
+            subscription.setDevices(getSubscriptionDevices(subscription));
+            synchronized (this) {
+                this.subscription = subscription;
+                positionTimes.clear();
+            }
+            sendLatestPositions(true);
+        } catch (JsonProcessingException | IllegalArgumentException | StorageException e) {
+            LOGGER.warn("Socket subscription error", e);
+        }
+    }
+
+    private Set<Long> getSubscriptionDevices(AsyncSocketSubscription subscription) throws StorageException {
+        if (subscription.getDeviceIds() == null && subscription.getGroupIds() == null) {
+            return null;
+        }
+        Set<Long> devices = new HashSet<>();
+        if (subscription.getDeviceIds() != null) {
+            devices.addAll(subscription.getDeviceIds());
+        }
+        if (subscription.getGroupIds() != null) {
+            var groups = storage.getObjects(Group.class, new Request(
+                    new Columns.Include("id", "groupId"), new Condition.Permission(User.class, userId, Group.class)));
+            Set<Long> groupIds = new HashSet<>(subscription.getGroupIds());
+            boolean expanded;
+            do {
+                expanded = false;
+                for (Group group : groups) {
+                    if (groupIds.contains(group.getGroupId())) {
+                        expanded |= groupIds.add(group.getId());
+                    }
+                }
+            } while (expanded);
+            storage.getObjects(Device.class, new Request(
+                    new Columns.Include("id", "groupId"), new Condition.Permission(User.class, userId, Device.class)))
+                    .stream()
+                    .filter(device -> groupIds.contains(device.getGroupId()))
+                    .map(BaseModel::getId)
+                    .forEach(devices::add);
+        }
+        return devices;
+    }
+
+    private void sendLatestPositions(boolean reset) throws StorageException {
+        var subscription = this.subscription;
+        var positions = PositionUtil.getLatestPositions(storage, latestPositionCache, userId);
+        if (subscription != null) {
+            positions = positions.stream()
+                    .filter(position -> subscription.checkDevice(position.getDeviceId()))
+                    .filter(subscription::checkBounds)
+                    .collect(Collectors.toList());
+        }
+        // encoder state must match the order frames are sent in, so reset and snapshot cannot interleave with flush
+        synchronized (sendLock) {
+            if (reset) {
+                compactEncoder.reset();
+            }
+            if (subscription != null && subscription.getCompact()) {
+                StringBuilder builder = new StringBuilder("{");
+                appendArray(builder, KEY_POSITIONS, positions, this::encodeCompact);
+                send(builder.append('}').toString());
+            } else {
+                Map<String, Collection<?>> data = new HashMap<>();
+                data.put(KEY_POSITIONS, positions);
+                sendData(data);
+            }
+        }
+    }
+
+    private String encodeCompact(Object position) {
+        try {
+            return compactEncoder.encode((Position) position);
+        } catch (JsonProcessingException e) {
+            LOGGER.warn("Socket JSON formatting error", e);
+            return null;
+        }
+    }
+
+    private boolean checkPosition(Position position) {
+        var subscription = this.subscription;
+        if (subscription == null) {
+            return true;
+        }
+        if (!subscription.checkDevice(position.getDeviceId()) || !subscription.checkBounds(position)) {
+            return false;
+        }
+        if (subscription.getInterval() > 0) {
+            long currentTime = System.currentTimeMillis();
+            Long lastTime = positionTimes.get(position.getDeviceId());
+            if (lastTime != null && currentTime - lastTime < subscription.getInterval()) {
+                return false;
+            }
+            positionTimes.put(position.getDeviceId(), currentTime);
+        }
+        return true;
+    }
+
     @Override
     public void onWebSocketClose(int statusCode, String reason) {
         super.onWebSocketClose(statusCode, reason);
 
         connectionManager.removeListener(userId, this);
+        dispatcher.unregister(this);
+    }
+
+    private void schedule() {
+        if (!pending) {
+            pending = true;
+            dispatcher.schedule(this);
+        }
     }
 
     @Override
-    public void onKeepalive() {
-        sendData(new HashMap<>());
+    public synchronized void onKeepalive() {
+        checkStalled();
+        schedule();
+    }
+
+    /**
+     * Check outbound buffer independently of write completions, so a client that stopped reading is still closed.
+     */
+    public synchronized void checkStalled() {
+        if (!checkBlocked() && pending && blockedSince > 0) {
+            dispatcher.schedule(this);
+        }
+    }
+
+    private boolean checkBlocked() {
+        if (!isOverBudget()) {
+            return false;
+        }
+        long currentTime = System.currentTimeMillis();
+        if (blockedSince == 0) {
+            blockedSince = currentTime;
+        } else if (currentTime - blockedSince > dispatcher.getBlockedTimeout()) {
+            close("Slow consumer");
+        }
+        return true;
+    }
+
+    private void close(String reason) {
+        if (!closed) {
+            closed = true;
+            LOGGER.warn("Closing socket for user {} with {} queued bytes: {}", userId, queuedBytes.get(), reason);
+            var session = getSession();
+            if (session != null) {
+                session.close(StatusCode.POLICY_VIOLATION, reason);
+            }
+        }
     }
 
     @Override
-    public void onUpdateDevice(Device device) {
-        Map<String, Collection<?>> data = new HashMap<>();
-        data.put(KEY_DEVICES, Collections.singletonList(device));
-        sendData(data);
+    public synchronized void onUpdateDevice(Device device) {
+        var subscription = this.subscription;
+        if (subscription == null || subscription.checkDevice(device.getId())) {
+            pendingDevices.put(device.getId(), device);
+            schedule();
+        }
     }
 
     @Override
-    public void onUpdatePosition(Position position) {
-        Map<String, Collection<?>> data = new HashMap<>();
-        data.put(KEY_POSITIONS, Collections.singletonList(position));
-        sendData(data);
+    public synchronized void onUpdatePosition(Position position) {
+        if (!checkPosition(position)) {
+            return;
+        }
+        if (dispatcher.getCoalesce() || blockedSince > 0) {
+            pendingPositions.put(position.getDeviceId(), position);
+        } else {
+            pendingPositionList.add(position);
+        }
+        checkBlocked();
+        schedule();
     }
 
     @Override
-    public void onUpdateEvent(Event event) {
-        Map<String, Collection<?>> data = new HashMap<>();
-        data.put(KEY_EVENTS, Collections.singletonList(event));
-        sendData(data);
+    public synchronized void onUpdateEvent(Event event) {
+        var subscription = this.subscription;
+        if (subscription == null || event.getDeviceId() == 0 || subscription.checkDevice(event.getDeviceId())) {
+            if (pendingEvents.size() >= MAX_PENDING_EVENTS) {
+                pendingEvents.clear();
+                close("Too many pending events");
+                return;
+            }
+            pendingEvents.add(event);
+            checkBlocked();
+            schedule();
+        }
+    }
+
+    private void collapsePositions() {
+        pendingPositionList.forEach(position -> pendingPositions.put(position.getDeviceId(), position));
+        pendingPositionList.clear();
+    }
+
+    private boolean isOverBudget() {
+        return queuedBytes.get() >= dispatcher.getMaxBytes() || queuedFrames.get() >= dispatcher.getMaxFrames();
+    }
+
+    public void flush(Function<Object, String> serializer) {
+        Collection<Device> devices;
+        Collection<Position> positions;
+        Collection<Event> events;
+        synchronized (this) {
+            if (!pending) {
+                return;
+            }
+            if (checkBlocked()) {
+                collapsePositions();
+                return;
+            }
+            blockedSince = 0;
+            if (!pendingPositions.isEmpty()) {
+                collapsePositions();
+            }
+            devices = pendingDevices.values();
+            positions = pendingPositions.isEmpty() ? pendingPositionList : pendingPositions.values();
+            events = pendingEvents;
+            pendingDevices = new LinkedHashMap<>();
+            pendingPositions = new LinkedHashMap<>();
+            pendingPositionList = new ArrayList<>();
+            pendingEvents = new ArrayList<>();
+            pending = false;
+        }
+
+        synchronized (sendLock) {
+            if (isConnected()) {
+                StringBuilder builder = new StringBuilder("{");
+                appendArray(builder, KEY_DEVICES, devices, serializer);
+                var subscription = this.subscription;
+                if (subscription != null && subscription.getCompact()) {
+                    appendArray(builder, KEY_POSITIONS, positions, this::encodeCompact);
+                } else {
+                    appendArray(builder, KEY_POSITIONS, positions, serializer);
+                }
+                appendArray(builder, KEY_EVENTS, events, serializer);
+                builder.append('}');
+                send(builder.toString());
+            }
+        }
+    }
+
+    private static long utf8Length(String text) {
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private void send(String text) {
+        long length = utf8Length(text);
+        queuedBytes.addAndGet(length);
+        queuedFrames.incrementAndGet();
+        getRemote().sendString(text, new WriteCallback() {
+            @Override
+            public void writeFailed(Throwable error) {
+                sent(length);
+            }
+
+            @Override
+            public void writeSuccess() {
+                sent(length);
+            }
+        });
+    }
+
+    private void sent(long length) {
+        queuedBytes.addAndGet(-length);
+        queuedFrames.decrementAndGet();
+        synchronized (this) {
+            if (pending && blockedSince > 0) {
+                dispatcher.schedule(this);
+            }
+        }
+    }
+
+    private static void appendArray(
+            StringBuilder builder, String key, Collection<?> objects, Function<Object, String> serializer) {
+        if (!objects.isEmpty()) {
+            if (builder.length() > 1) {
+                builder.append(',');
+            }
+            builder.append('"').append(key).append("\":[");
+            boolean first = true;
+            for (Object object : objects) {
+                String value = serializer.apply(object);
+                if (value != null) {
+                    if (!first) {
+                        builder.append(',');
+                    }
+                    builder.append(value);
+                    first = false;
+                }
+            }
+            builder.append(']');
+        }
     }
 
     private void sendData(Map<String, Collection<?>> data) {
         if (isConnected()) {
             try {
-                getRemote().sendString(objectMapper.writeValueAsString(data), null);
+                send(objectMapper.writeValueAsString(data));
             } catch (JsonProcessingException e) {
                 LOGGER.warn("Socket JSON formatting error", e);
             }
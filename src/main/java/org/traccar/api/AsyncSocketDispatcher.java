@@ -0,0 +1,158 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.LifecycleObject;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Singleton
+public class AsyncSocketDispatcher implements LifecycleObject {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncSocketDispatcher.class);
+
+    private final ObjectMapper objectMapper;
+    private final long interval;
+    private final long maxBytes;
+    private final int maxFrames;
+    private final long blockedTimeout;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "socket-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Queue<AsyncSocket> pendingSockets = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Set<AsyncSocket> sockets = ConcurrentHashMap.newKeySet();
+
+    @Inject
+    public AsyncSocketDispatcher(Config config, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        interval = config.getLong(Keys.WEB_SOCKET_INTERVAL);
+        maxBytes = config.getLong(Keys.WEB_SOCKET_MAX_BYTES);
+        maxFrames = config.getInteger(Keys.WEB_SOCKET_MAX_FRAMES);
+        blockedTimeout = config.getLong(Keys.WEB_TIMEOUT);
+    }
+
+    @Override
+    public void start() {
+        if (interval > 0) {
+            executor.scheduleWithFixedDelay(this::dispatch, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        executor.scheduleWithFixedDelay(this::checkSockets, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public boolean getCoalesce() {
+        return interval > 0;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public int getMaxFrames() {
+        return maxFrames;
+    }
+
+    public long getBlockedTimeout() {
+        return blockedTimeout;
+    }
+
+    public void register(AsyncSocket socket) {
+        sockets.add(socket);
+    }
+
+    public void unregister(AsyncSocket socket) {
+        sockets.remove(socket);
+    }
+
+    public int getSocketCount() {
+        return sockets.size();
+    }
+
+    public long getQueuedBytes() {
+        return sockets.stream().mapToLong(AsyncSocket::getQueuedBytes).sum();
+    }
+
+    public long getMaxQueuedBytes() {
+        return sockets.stream().mapToLong(AsyncSocket::getQueuedBytes).max().orElse(0);
+    }
+
+    public void schedule(AsyncSocket socket) {
+        pendingSockets.add(socket);
+        if (interval <= 0 && !executor.isShutdown() && scheduled.compareAndSet(false, true)) {
+            executor.execute(this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+        scheduled.set(false);
+        Map<Object, String> serialized = new IdentityHashMap<>();
+        AsyncSocket socket;
+        while ((socket = pendingSockets.poll()) != null) {
+            try {
+                socket.flush(object -> serialized.computeIfAbsent(object, this::serialize));
+            } catch (RuntimeException e) {
+                LOGGER.warn("Socket dispatch error", e);
+            }
+        }
+    }
+
+    private void checkSockets() {
+        for (AsyncSocket socket : sockets) {
+            try {
+                socket.checkStalled();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Socket check error", e);
+            }
+        }
+    }
+
+    private String serialize(Object object) {
+        try {
+            return objectMapper.writeValueAsString(object);
+        } catch (JsonProcessingException e) {
+            LOGGER.warn("Socket JSON formatting error", e);
+            return null;
+        }
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2015 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,12 +22,15 @@ import org.traccar.api.resource.SessionResource;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
 import org.traccar.session.ConnectionManager;
+import org.traccar.session.cache.LatestPositionCache;
 import org.traccar.storage.Storage;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.servlet.http.HttpSession;
 import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Singleton
 public class AsyncSocketServlet extends JettyWebSocketServlet {
@@ -36,24 +39,38 @@ public class AsyncSocketServlet extends JettyWebSocketServlet {
     private final ObjectMapper objectMapper;
     private final ConnectionManager connectionManager;
     private final Storage storage;
+    private final LatestPositionCache latestPositionCache;
+    private final AsyncSocketDispatcher dispatcher;
 
     @Inject
     public AsyncSocketServlet(
-            Config config, ObjectMapper objectMapper, ConnectionManager connectionManager, Storage storage) {
+            Config config, ObjectMapper objectMapper, ConnectionManager connectionManager, Storage storage,
+            LatestPositionCache latestPositionCache, AsyncSocketDispatcher dispatcher) {
         this.config = config;
         this.objectMapper = objectMapper;
         this.connectionManager = connectionManager;
         this.storage = storage;
+        this.latestPositionCache = latestPositionCache;
+        this.dispatcher = dispatcher;
     }
 
     @Override
     public void configure(JettyWebSocketServletFactory factory) {
         factory.setIdleTimeout(Duration.ofMillis(config.getLong(Keys.WEB_TIMEOUT)));
+        boolean compression = !config.getBoolean(Keys.WEB_DISABLE_SOCKET_COMPRESSION);
         factory.setCreator((req, resp) -> {
+            if (compression) {
+                resp.setExtensions(req.getExtensions().stream()
+                        .filter(extension -> extension.getName().equals("permessage-deflate"))
+                        .collect(Collectors.toList()));
+            } else {
+                resp.setExtensions(List.of());
+            }
             if (req.getSession() != null) {
                 Long userId = (Long) ((HttpSession) req.getSession()).getAttribute(SessionResource.USER_ID_KEY);
                 if (userId != null) {
-                    return new AsyncSocket(objectMapper, connectionManager, storage, userId);
+                    return new AsyncSocket(
+                            objectMapper, connectionManager, storage, latestPositionCache, dispatcher, userId);
                 }
             }
             return null;
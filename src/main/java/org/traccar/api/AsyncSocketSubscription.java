@@ -0,0 +1,113 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.api;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.traccar.model.Position;
+
+import java.util.List;
+import java.util.Set;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AsyncSocketSubscription {
+
+    private List<Long> deviceIds;
+
+    public List<Long> getDeviceIds() {
+        return deviceIds;
+    }
+
+    public void setDeviceIds(List<Long> deviceIds) {
+        this.deviceIds = deviceIds;
+    }
+
+    private List<Long> groupIds;
+
+    public List<Long> getGroupIds() {
+        return groupIds;
+    }
+
+    public void setGroupIds(List<Long> groupIds) {
+        this.groupIds = groupIds;
+    }
+
+    private double[] bounds;
+
+    public double[] getBounds() {
+        return bounds;
+    }
+
+    public void setBounds(double[] bounds) {
+        if (bounds != null && bounds.length != 4) {
+            throw new IllegalArgumentException("Bounds must have four values");
+        }
+        this.bounds = bounds;
+    }
+
+    private long interval;
+
+    public long getInterval() {
+        return interval;
+    }
+
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+
+    private boolean compact;
+
+    public boolean getCompact() {
+        return compact;
+    }
+
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+
+    private Set<Long> devices;
+
+    @JsonIgnore
+    public Set<Long> getDevices() {
+        return devices;
+    }
+
+    @JsonIgnore
+    public void setDevices(Set<Long> devices) {
+        this.devices = devices;
+    }
+
+    public boolean checkDevice(long deviceId) {
+        return devices == null || devices.contains(deviceId);
+    }
+
+    public boolean checkBounds(Position position) {
+        if (bounds == null) {
+            return true;
+        }
+        double latitude = position.getLatitude();
+        double longitude = position.getLongitude();
+        if (latitude < bounds[1] || latitude > bounds[3]) {
+            return false;
+        }
+        if (bounds[0] <= bounds[2]) {
+            return longitude >= bounds[0] && longitude <= bounds[2];
+        } else {
+            return longitude >= bounds[0] || longitude <= bounds[2];
+        }
+    }
+
+}
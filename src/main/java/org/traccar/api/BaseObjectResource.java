@@ -17,8 +17,10 @@
 package org.traccar.api;
 
 import org.traccar.api.security.ServiceAccountUser;
+import org.traccar.database.DeviceLookupService;
 import org.traccar.helper.LogAction;
 import org.traccar.model.BaseModel;
+import org.traccar.model.Device;
 import org.traccar.model.Group;
 import org.traccar.model.Permission;
 import org.traccar.model.User;
@@ -46,6 +48,9 @@ public abstract class BaseObjectResource<T extends BaseModel> extends BaseResour
     @Inject
     private ConnectionManager connectionManager;
 
+    @Inject
+    private DeviceLookupService deviceLookupService;
+
     protected final Class<T> baseClass;
 
     public BaseObjectResource(Class<T> baseClass) {
@@ -70,6 +75,9 @@ public abstract class BaseObjectResource<T extends BaseModel> extends BaseResour
         permissionsService.checkEdit(getUserId(), entity, true);
 
         entity.setId(storage.addObject(entity, new Request(new Columns.Exclude("id"))));
+        if (entity instanceof Device) {
+            deviceLookupService.refresh(true, (Device) entity);
+        }
         LogAction.create(getUserId(), entity);
 
         if (getUserId() != ServiceAccountUser.ID) {
@@ -111,6 +119,9 @@ public abstract class BaseObjectResource<T extends BaseModel> extends BaseResour
             }
         }
         cacheManager.updateOrInvalidate(true, entity);
+        if (entity instanceof Device) {
+            deviceLookupService.refresh(false, (Device) entity);
+        }
         LogAction.edit(getUserId(), entity);
 
         return Response.ok(entity).build();
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.traccar.model.Position;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+public class CompactPositionEncoder {
+
+    private static final String KEY_ATTRIBUTES = "attributes";
+
+    private static final Map<String, String> KEYS = Map.ofEntries(
+            Map.entry("id", "i"),
+            Map.entry("deviceId", "d"),
+            Map.entry("protocol", "pr"),
+            Map.entry("serverTime", "st"),
+            Map.entry("deviceTime", "dt"),
+            Map.entry("fixTime", "ft"),
+            Map.entry("outdated", "o"),
+            Map.entry("valid", "v"),
+            Map.entry("latitude", "la"),
+            Map.entry("longitude", "lo"),
+            Map.entry("altitude", "al"),
+            Map.entry("speed", "s"),
+            Map.entry("course", "c"),
+            Map.entry("address", "ad"),
+            Map.entry("accuracy", "ac"),
+            Map.entry("network", "n"),
+            Map.entry("geofenceIds", "g"),
+            Map.entry(KEY_ATTRIBUTES, "at"));
+
+    private static final TypeReference<Map<String, Object>> TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+    private final Map<Long, Map<String, Object>> states = new HashMap<>();
+
+    public CompactPositionEncoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public synchronized void reset() {
+        states.clear();
+    }
+
+    public synchronized String encode(Position position) throws JsonProcessingException {
+        Map<String, Object> current = objectMapper.convertValue(position, TYPE);
+        current.put("serverTime", position.getServerTime() != null ? position.getServerTime().getTime() : null);
+        current.put("deviceTime", position.getDeviceTime() != null ? position.getDeviceTime().getTime() : null);
+        current.put("fixTime", position.getFixTime() != null ? position.getFixTime().getTime() : null);
+        Map<String, Object> previous = states.put(position.getDeviceId(), current);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put(KEYS.get("deviceId"), position.getDeviceId());
+        if (previous == null) {
+            current.forEach((key, value) -> result.put(KEYS.getOrDefault(key, key), value));
+        } else {
+            appendChanges(result, previous, current, true);
+        }
+        return objectMapper.writeValueAsString(result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void appendChanges(
+            Map<String, Object> result, Map<String, Object> previous, Map<String, Object> current, boolean root) {
+        current.forEach((key, value) -> {
+            Object previousValue = previous.get(key);
+            if (!Objects.equals(previousValue, value)) {
+                String resultKey = root ? KEYS.getOrDefault(key, key) : key;
+                if (root && key.equals(KEY_ATTRIBUTES) && previousValue instanceof Map && value instanceof Map) {
+                    Map<String, Object> attributes = new LinkedHashMap<>();
+                    appendChanges(attributes, (Map<String, Object>) previousValue, (Map<String, Object>) value, false);
+                    result.put(resultKey, attributes);
+                } else {
+                    result.put(resultKey, value);
+                }
+            }
+        });
+        previous.keySet().stream()
+                .filter(key -> !current.containsKey(key))
+                .forEach(key -> result.put(root ? KEYS.getOrDefault(key, key) : key, null));
+    }
+
+}
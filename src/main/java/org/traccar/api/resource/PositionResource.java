@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2015 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,10 @@
 package org.traccar.api.resource;
 
 import org.traccar.api.BaseResource;
+import org.traccar.archive.RawArchive;
+import org.traccar.archive.RawFrame;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
 import org.traccar.helper.model.PositionUtil;
 import org.traccar.model.Device;
 import org.traccar.model.Position;
@@ -23,11 +27,13 @@ import org.traccar.model.UserRestrictions;
 import org.traccar.reports.CsvExportProvider;
 import org.traccar.reports.GpxExportProvider;
 import org.traccar.reports.KmlExportProvider;
+import org.traccar.session.cache.LatestPositionCache;
 import org.traccar.storage.StorageException;
 import org.traccar.storage.query.Columns;
 import org.traccar.storage.query.Condition;
 import org.traccar.storage.query.Request;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
@@ -40,6 +46,7 @@ import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
@@ -51,6 +58,12 @@ import java.util.LinkedList;
 @Consumes(MediaType.APPLICATION_JSON)
 public class PositionResource extends BaseResource {
 
+    @Inject
+    private Config config;
+
+    @Inject
+    private LatestPositionCache latestPositionCache;
+
     @Inject
     private KmlExportProvider kmlExportProvider;
 
@@ -60,6 +73,10 @@ public class PositionResource extends BaseResource {
     @Inject
     private GpxExportProvider gpxExportProvider;
 
+    @Inject
+    @Nullable
+    private RawArchive rawArchive;
+
     @GET
     public Collection<Position> getJson(
             @QueryParam("deviceId") long deviceId, @QueryParam("id") List<Long> positionIds,
@@ -80,14 +97,42 @@ public class PositionResource extends BaseResource {
                 permissionsService.checkRestriction(getUserId(), UserRestrictions::getDisableReports);
                 return PositionUtil.getPositions(storage, deviceId, from, to);
             } else {
-                return storage.getObjects(Position.class, new Request(
-                        new Columns.All(), new Condition.LatestPositions(deviceId)));
+                return latestPositionCache.getPositions(List.of(deviceId));
             }
         } else {
-            return PositionUtil.getLatestPositions(storage, getUserId());
+            return PositionUtil.getLatestPositions(storage, latestPositionCache, getUserId());
         }
     }
 
+    @Path("raw")
+    @GET
+    public Collection<RawFrame> getRaw(
+            @QueryParam("deviceId") long deviceId, @QueryParam("id") long positionId,
+            @QueryParam("from") Date from, @QueryParam("to") Date to) throws StorageException, IOException {
+        if (rawArchive == null) {
+            throw new WebApplicationException(Response.status(Response.Status.NOT_FOUND).build());
+        }
+        if (positionId > 0) {
+            Position position = storage.getObject(Position.class, new Request(
+                    new Columns.All(), new Condition.Equals("id", positionId)));
+            if (position == null) {
+                throw new WebApplicationException(Response.status(Response.Status.NOT_FOUND).build());
+            }
+            permissionsService.checkPermission(Device.class, getUserId(), position.getDeviceId());
+            permissionsService.checkRestriction(getUserId(), UserRestrictions::getDisableReports);
+            return rawArchive.getFrames(position.getDeviceId(), position.getFixTime(), position.getFixTime());
+        }
+        if (from == null || to == null || from.after(to)) {
+            throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST).build());
+        }
+        if (to.getTime() - from.getTime() > config.getLong(Keys.DATABASE_ARCHIVE_PERIOD_LIMIT) * 1000) {
+            throw new IllegalArgumentException("Time period exceeds the limit");
+        }
+        permissionsService.checkPermission(Device.class, getUserId(), deviceId);
+        permissionsService.checkRestriction(getUserId(), UserRestrictions::getDisableReports);
+        return rawArchive.getFrames(deviceId, from, to);
+    }
+
     @DELETE
     public Response remove(
             @QueryParam("deviceId") long deviceId,
@@ -99,6 +144,7 @@ public class PositionResource extends BaseResource {
         conditions.add(new Condition.Equals("deviceId", deviceId));
         conditions.add(new Condition.Between("fixTime", "from", from, "to", to));
         storage.removeObject(Position.class, new Request(Condition.merge(conditions)));
+        latestPositionCache.invalidate(deviceId);
 
         return Response.status(Response.Status.NO_CONTENT).build();
     }
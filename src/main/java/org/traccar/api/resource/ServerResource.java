@@ -24,6 +24,7 @@ import org.traccar.helper.Log;
 import org.traccar.helper.LogAction;
 import org.traccar.helper.model.UserUtil;
 import org.traccar.mail.MailManager;
+import org.traccar.metrics.RecordingManager;
 import org.traccar.model.Server;
 import org.traccar.model.User;
 import org.traccar.session.cache.CacheManager;
@@ -37,6 +38,8 @@ import javax.annotation.Nullable;
 import javax.annotation.security.PermitAll;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
@@ -44,14 +47,18 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.TimeZone;
@@ -82,6 +89,9 @@ public class ServerResource extends BaseResource {
     @Nullable
     private Geocoder geocoder;
 
+    @Inject
+    private RecordingManager recordingManager;
+
     @PermitAll
     @GET
     public Server get() throws StorageException {
@@ -132,6 +142,49 @@ public class ServerResource extends BaseResource {
         return Arrays.asList(TimeZone.getAvailableIDs());
     }
 
+    @Path("recording")
+    @POST
+    public Response startRecording(
+            @QueryParam("configuration") @DefaultValue("default") String configuration,
+            @QueryParam("duration") @DefaultValue("60") long duration,
+            @QueryParam("maxSize") @DefaultValue("67108864") long maxSize)
+            throws StorageException {
+        permissionsService.checkAdmin(getUserId());
+        if (duration <= 0 || maxSize <= 0) {
+            throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST).build());
+        }
+        recordingManager.start(configuration, Duration.ofSeconds(duration), maxSize);
+        return Response.noContent().build();
+    }
+
+    @Path("recording")
+    @DELETE
+    public Response stopRecording() throws StorageException {
+        permissionsService.checkAdmin(getUserId());
+        recordingManager.stop();
+        return Response.noContent().build();
+    }
+
+    @Path("recording")
+    @GET
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public Response getRecording() throws StorageException, IOException {
+        permissionsService.checkAdmin(getUserId());
+        var path = recordingManager.dump();
+        if (path == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        StreamingOutput stream = output -> {
+            try {
+                Files.copy(path, output);
+            } finally {
+                Files.delete(path);
+            }
+        };
+        return Response.ok(stream)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=recording.jfr").build();
+    }
+
     @Path("file/{path}")
     @POST
     @Consumes("*/*")
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One day of archived messages. The data file is a sequence of blocks, each one a header with compressed and
+ * uncompressed length followed by deflated frames. A frame is the receive time, the length and the original bytes.
+ * The index file is a sequence of runs, each one an entry count followed by fixed size entries of device id, fix time,
+ * block offset and frame offset inside the uncompressed block. Entries inside a run are sorted by device id and fix
+ * time, so lookups binary search each run instead of scanning the whole index. Runs are written only after their
+ * blocks, so the index never points to missing data.
+ */
+class ArchiveSegment {
+
+    private static final int BLOCK_HEADER_SIZE = 8;
+    private static final int RUN_HEADER_SIZE = 4;
+    private static final int INDEX_ENTRY_SIZE = 28;
+    private static final int INDEX_KEY_SIZE = 16;
+    private static final int READ_ENTRIES = 256;
+
+    private static final int RUN_SIZE = 65536;
+    private static final long RUN_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private static final Comparator<long[]> ENTRY_ORDER =
+            Comparator.<long[]>comparingLong(entry -> entry[0]).thenComparingLong(entry -> entry[1]);
+
+    private final Path dataPath;
+    private final Path indexPath;
+    private final int blockSize;
+
+    private FileChannel dataChannel;
+    private FileChannel indexChannel;
+    private long dataSize;
+    private long indexSize;
+
+    private final ByteArrayOutputStream block;
+    private final DataOutputStream blockOutput;
+    private final List<long[]> index = new ArrayList<>();
+    private long indexStart;
+
+    private long lastWrite;
+
+    ArchiveSegment(Path dataPath, Path indexPath, int blockSize) {
+        this.dataPath = dataPath;
+        this.indexPath = indexPath;
+        this.blockSize = blockSize;
+        block = new ByteArrayOutputStream(blockSize);
+        blockOutput = new DataOutputStream(block);
+    }
+
+    public long getLastWrite() {
+        return lastWrite;
+    }
+
+    public boolean isPending() {
+        return block.size() > 0;
+    }
+
+    public void append(List<long[]> entries, long serverTime, byte[] data, Deflater deflater) throws IOException {
+        if (dataChannel == null) {
+            dataChannel = FileChannel.open(
+                    dataPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            indexChannel = FileChannel.open(
+                    indexPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            dataSize = dataChannel.size();
+            indexSize = indexChannel.size();
+        }
+        int frameOffset = block.size();
+        blockOutput.writeLong(serverTime);
+        blockOutput.writeInt(data.length);
+        blockOutput.write(data);
+        lastWrite = System.currentTimeMillis();
+        if (index.isEmpty()) {
+            indexStart = lastWrite;
+        }
+        for (long[] entry : entries) {
+            index.add(new long[] {entry[0], entry[1], dataSize, frameOffset});
+        }
+        if (block.size() >= blockSize) {
+            flushBlock(deflater);
+            if (index.size() >= RUN_SIZE) {
+                flushIndex();
+            }
+        }
+    }
+
+    /**
+     * Write pending block to disk. Index run is written when it is large or old enough, to keep the number of runs
+     * that each lookup has to search low.
+     */
+    public void flush(Deflater deflater) throws IOException {
+        flushBlock(deflater);
+        if (!index.isEmpty()
+                && (index.size() >= RUN_SIZE || System.currentTimeMillis() - indexStart >= RUN_INTERVAL)) {
+            flushIndex();
+        }
+    }
+
+    private void flushBlock(Deflater deflater) throws IOException {
+        if (!isPending()) {
+            return;
+        }
+        byte[] input = block.toByteArray();
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        byte[] output = new byte[BLOCK_HEADER_SIZE + input.length + input.length / 1000 + 64];
+        int length = BLOCK_HEADER_SIZE;
+        while (!deflater.finished()) {
+            if (length == output.length) {
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+            length += deflater.deflate(output, length, output.length - length);
+        }
+        ByteBuffer.wrap(output).putInt(length - BLOCK_HEADER_SIZE).putInt(input.length);
+
+        writeFully(dataChannel, ByteBuffer.wrap(output, 0, length));
+        dataSize += length;
+        block.reset();
+    }
+
+    private void flushIndex() throws IOException {
+        index.sort(ENTRY_ORDER);
+        ByteBuffer buffer = ByteBuffer.allocate(RUN_HEADER_SIZE + index.size() * INDEX_ENTRY_SIZE);
+        buffer.putInt(index.size());
+        for (long[] entry : index) {
+            buffer.putLong(entry[0]).putLong(entry[1]).putLong(entry[2]).putInt((int) entry[3]);
+        }
+        buffer.flip();
+        writeFully(indexChannel, buffer);
+        indexSize += buffer.limit();
+        index.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public void close(Deflater deflater) throws IOException {
+        flushBlock(deflater);
+        if (!index.isEmpty()) {
+            flushIndex();
+        }
+        if (dataChannel != null) {
+            dataChannel.close();
+            indexChannel.close();
+            dataChannel = null;
+            indexChannel = null;
+        }
+    }
+
+    /**
+     * Collect matching entries that are not yet in the index file. Frames from the pending block are decoded from
+     * memory, others are added to the block map. Must be called under the writer lock.
+     *
+     * @return size of the index file that the collected entries are not part of
+     */
+    public long readPending(
+            long deviceId, long from, long to, Map<Long, Map<Integer, Long>> blocks, List<RawFrame> result) {
+        if (dataChannel == null) {
+            return Long.MAX_VALUE;
+        }
+        Map<Integer, Long> frames = new TreeMap<>();
+        for (long[] entry : index) {
+            if (entry[0] == deviceId && entry[1] >= from && entry[1] <= to) {
+                if (entry[2] == dataSize) {
+                    frames.putIfAbsent((int) entry[3], entry[1]);
+                } else {
+                    blocks.computeIfAbsent(entry[2], k -> new TreeMap<>()).putIfAbsent((int) entry[3], entry[1]);
+                }
+            }
+        }
+        if (!frames.isEmpty()) {
+            readFrames(ByteBuffer.wrap(block.toByteArray()), deviceId, frames, result);
+        }
+        return indexSize;
+    }
+
+    /**
+     * Read frames from files. Only uses immutable state, so it can run concurrently with the writer.
+     */
+    public void read(
+            long deviceId, long from, long to, long indexLimit,
+            Map<Long, Map<Integer, Long>> blocks, List<RawFrame> result) throws IOException {
+        if (Files.exists(indexPath)) {
+            try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+                long size = Math.min(channel.size(), indexLimit);
+                ByteBuffer header = ByteBuffer.allocate(RUN_HEADER_SIZE);
+                long position = 0;
+                while (position + RUN_HEADER_SIZE <= size) {
+                    header.clear();
+                    readFully(channel, header, position);
+                    long start = position + RUN_HEADER_SIZE;
+                    long end = start + (long) header.getInt(0) * INDEX_ENTRY_SIZE;
+                    if (end > size) {
+                        break;
+                    }
+                    readRun(channel, start, end, deviceId, from, to, blocks);
+                    position = end;
+                }
+            }
+        }
+
+        if (blocks.isEmpty()) {
+            return;
+        }
+
+        Inflater inflater = new Inflater();
+        try (FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.READ)) {
+            for (var blockEntry : blocks.entrySet()) {
+                ByteBuffer data = ByteBuffer.wrap(readBlock(channel, blockEntry.getKey(), inflater));
+                readFrames(data, deviceId, blockEntry.getValue(), result);
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void readRun(
+            FileChannel channel, long start, long end, long deviceId, long from, long to,
+            Map<Long, Map<Integer, Long>> blocks) throws IOException {
+
+        ByteBuffer key = ByteBuffer.allocate(INDEX_KEY_SIZE);
+        long low = 0;
+        long high = (end - start) / INDEX_ENTRY_SIZE;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            key.clear();
+            readFully(channel, key, start + middle * INDEX_ENTRY_SIZE);
+            long entryDeviceId = key.getLong(0);
+            if (entryDeviceId < deviceId || entryDeviceId == deviceId && key.getLong(8) < from) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(READ_ENTRIES * INDEX_ENTRY_SIZE);
+        long position = start + low * INDEX_ENTRY_SIZE;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            readFully(channel, buffer, position);
+            for (int offset = 0; offset < buffer.limit(); offset += INDEX_ENTRY_SIZE) {
+                long time = buffer.getLong(offset + 8);
+                if (buffer.getLong(offset) != deviceId || time > to) {
+                    return;
+                }
+                blocks.computeIfAbsent(buffer.getLong(offset + 16), k -> new TreeMap<>())
+                        .putIfAbsent(buffer.getInt(offset + 24), time);
+            }
+            position += buffer.limit();
+        }
+    }
+
+    private static void readFrames(ByteBuffer data, long deviceId, Map<Integer, Long> frames, List<RawFrame> result) {
+        for (var frameEntry : frames.entrySet()) {
+            data.position(frameEntry.getKey());
+            long serverTime = data.getLong();
+            byte[] frame = new byte[data.getInt()];
+            data.get(frame);
+            result.add(new RawFrame(deviceId, new Date(frameEntry.getValue()), new Date(serverTime), frame));
+        }
+    }
+
+    private static byte[] readBlock(FileChannel channel, long offset, Inflater inflater) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        readFully(channel, header, offset);
+        header.flip();
+        ByteBuffer compressed = ByteBuffer.allocate(header.getInt());
+        byte[] output = new byte[header.getInt()];
+        readFully(channel, compressed, offset + BLOCK_HEADER_SIZE);
+        inflater.reset();
+        inflater.setInput(compressed.array());
+        try {
+            int length = 0;
+            while (length < output.length && !inflater.finished()) {
+                int count = inflater.inflate(output, length, output.length - length);
+                if (count == 0 && inflater.needsInput()) {
+                    throw new IOException("Truncated archive block");
+                }
+                length += count;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        }
+        return output;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.archive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.LifecycleObject;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Position;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+public class RawArchive implements LifecycleObject {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RawArchive.class);
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(10);
+
+    private final Path path;
+    private final int blockSize;
+    private final long flushDelay;
+
+    private final BlockingQueue<PendingFrame> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Map<Long, ArchiveSegment> segments = new HashMap<>();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    private Thread thread;
+    private volatile boolean running;
+
+    private static final class PendingFrame {
+
+        private final long serverTime;
+        private final Map<Long, List<long[]>> entries;
+        private final byte[] data;
+
+        private PendingFrame(long serverTime, Map<Long, List<long[]>> entries, byte[] data) {
+            this.serverTime = serverTime;
+            this.entries = entries;
+            this.data = data;
+        }
+
+    }
+
+    public RawArchive(Config config) throws IOException {
+        path = Paths.get(config.getString(Keys.DATABASE_ARCHIVE_PATH));
+        blockSize = config.getInteger(Keys.DATABASE_ARCHIVE_BLOCK_SIZE);
+        flushDelay = config.getLong(Keys.DATABASE_ARCHIVE_FLUSH_DELAY);
+        queue = new ArrayBlockingQueue<>(Math.max(1, config.getInteger(Keys.DATABASE_ARCHIVE_QUEUE_SIZE)));
+        Files.createDirectories(path);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "raw-archive");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        if (thread != null) {
+            running = false;
+            thread.join();
+            thread = null;
+        }
+        synchronized (segments) {
+            PendingFrame frame;
+            while ((frame = queue.poll()) != null) {
+                write(frame);
+            }
+            for (ArchiveSegment segment : segments.values()) {
+                try {
+                    segment.close(deflater);
+                } catch (IOException e) {
+                    LOGGER.warn("Raw archive close error", e);
+                }
+            }
+            segments.clear();
+        }
+    }
+
+    /**
+     * Queue original message for archiving. Message is indexed by device id and fix time of each position decoded
+     * from it and stored in the segment of the corresponding day.
+     */
+    public void addFrame(Collection<Position> positions, byte[] data) {
+        Map<Long, List<long[]>> entries = new LinkedHashMap<>();
+        for (Position position : positions) {
+            long time = position.getFixTime() != null ? position.getFixTime().getTime() : System.currentTimeMillis();
+            entries.computeIfAbsent(Math.floorDiv(time, DAY), k -> new ArrayList<>())
+                    .add(new long[] {position.getDeviceId(), time});
+        }
+        if (!entries.isEmpty()) {
+            if (!queue.offer(new PendingFrame(System.currentTimeMillis(), entries, data))) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Read archived messages. The writer lock is only held to collect entries of the active segment that are still in
+     * memory, files are read without it.
+     */
+    public List<RawFrame> getFrames(long deviceId, Date from, Date to) throws IOException {
+        List<RawFrame> result = new ArrayList<>();
+        for (long day = Math.floorDiv(from.getTime(), DAY); day <= Math.floorDiv(to.getTime(), DAY); day++) {
+            Map<Long, Map<Integer, Long>> blocks = new TreeMap<>();
+            List<RawFrame> pendingFrames = new ArrayList<>();
+            ArchiveSegment segment;
+            long indexLimit = Long.MAX_VALUE;
+            synchronized (segments) {
+                segment = segments.get(day);
+                if (segment != null) {
+                    indexLimit = segment.readPending(deviceId, from.getTime(), to.getTime(), blocks, pendingFrames);
+                }
+            }
+            if (segment == null) {
+                segment = createSegment(day);
+            }
+            segment.read(deviceId, from.getTime(), to.getTime(), indexLimit, blocks, result);
+            result.addAll(pendingFrames);
+        }
+        return result;
+    }
+
+    private ArchiveSegment createSegment(long day) {
+        String name = LocalDate.ofEpochDay(day).format(DateTimeFormatter.BASIC_ISO_DATE);
+        return new ArchiveSegment(path.resolve(name + ".dat"), path.resolve(name + ".idx"), blockSize);
+    }
+
+    private void run() {
+        long lastFlush = System.currentTimeMillis();
+        while (running) {
+            try {
+                PendingFrame frame = queue.poll(flushDelay, TimeUnit.MILLISECONDS);
+                synchronized (segments) {
+                    while (frame != null) {
+                        write(frame);
+                        frame = queue.poll();
+                    }
+                    long currentTime = System.currentTimeMillis();
+                    if (currentTime - lastFlush >= flushDelay) {
+                        flush(currentTime);
+                        lastFlush = currentTime;
+                    }
+                }
+                long count = dropped.getAndSet(0);
+                if (count > 0) {
+                    LOGGER.warn("Raw archive queue is full, {} messages not archived", count);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private void write(PendingFrame frame) {
+        for (var entry : frame.entries.entrySet()) {
+            try {
+                segments.computeIfAbsent(entry.getKey(), this::createSegment)
+                        .append(entry.getValue(), frame.serverTime, frame.data, deflater);
+            } catch (IOException e) {
+                LOGGER.warn("Raw archive write error", e);
+            }
+        }
+    }
+
+    private void flush(long currentTime) {
+        Iterator<ArchiveSegment> iterator = segments.values().iterator();
+        while (iterator.hasNext()) {
+            ArchiveSegment segment = iterator.next();
+            try {
+                if (currentTime - segment.getLastWrite() > IDLE_TIMEOUT) {
+                    segment.close(deflater);
+                    iterator.remove();
+                } else {
+                    segment.flush(deflater);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Raw archive flush error", e);
+            }
+        }
+    }
+
+}
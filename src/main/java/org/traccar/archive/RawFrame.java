@@ -0,0 +1,58 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.archive;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.traccar.helper.DataConverter;
+
+import java.util.Date;
+
+public class RawFrame {
+
+    private final long deviceId;
+    private final Date fixTime;
+    private final Date serverTime;
+    private final byte[] data;
+
+    public RawFrame(long deviceId, Date fixTime, Date serverTime, byte[] data) {
+        this.deviceId = deviceId;
+        this.fixTime = fixTime;
+        this.serverTime = serverTime;
+        this.data = data;
+    }
+
+    public long getDeviceId() {
+        return deviceId;
+    }
+
+    public Date getFixTime() {
+        return fixTime;
+    }
+
+    public Date getServerTime() {
+        return serverTime;
+    }
+
+    @JsonIgnore
+    public byte[] getBytes() {
+        return data;
+    }
+
+    public String getData() {
+        return DataConverter.printHex(data);
+    }
+
+}
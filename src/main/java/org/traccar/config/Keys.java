@@ -69,6 +69,24 @@ public final class Keys {
             ".timeout",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Number of network threads dedicated to the protocol. By default all protocols share the same worker threads. A
+     * separate group prevents a protocol with heavy traffic from delaying messages of other protocols.
+     */
+    public static final ConfigSuffix<Integer> PROTOCOL_WORKER_THREADS = new IntegerConfigSuffix(
+            ".workerThreads",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Number of UDP channels bound to the protocol port. By default a single channel receives all packets on one
+     * thread. Multiple channels share the port using SO_REUSEPORT, each on a separate worker thread if the worker group
+     * has enough threads. The kernel distributes packets between channels by source address, so messages from the same
+     * device stay in order. Requires native epoll transport.
+     */
+    public static final ConfigSuffix<Integer> PROTOCOL_UDP_CHANNELS = new IntegerConfigSuffix(
+            ".udpChannels",
+            List.of(KeyType.CONFIG));
+
     /**
      * Device password. Commonly used in some protocol for sending commands.
      */
@@ -299,6 +317,56 @@ public final class Keys {
             "server.instantAcknowledgement",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Number of threads for processing decoded messages. By default all handlers run on network threads, so a slow
+     * database query blocks all other connections served by the same thread. If set, everything after protocol
+     * decoding (filtering, storage, events, notifications) runs on a separate pool. Messages of the same device are
+     * always handled by the same processing thread, so their order is preserved.
+     */
+    public static final ConfigKey<Integer> SERVER_PROCESSING_THREADS = new IntegerConfigKey(
+            "server.processingThreads",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Use native epoll transport for network connections. Available only on Linux. Native transport has lower system
+     * call overhead and produces less garbage than the default NIO transport. If the native library can't be loaded,
+     * the server falls back to NIO.
+     */
+    public static final ConfigKey<Boolean> SERVER_EPOLL = new BooleanConfigKey(
+            "server.epoll",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Number of threads accepting incoming TCP connections. By default it's twice the number of CPU cores.
+     */
+    public static final ConfigKey<Integer> SERVER_BOSS_THREADS = new IntegerConfigKey(
+            "server.bossThreads",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Number of network threads handling established connections and UDP packets. By default it's twice the number of
+     * CPU cores.
+     */
+    public static final ConfigKey<Integer> SERVER_WORKER_THREADS = new IntegerConfigKey(
+            "server.workerThreads",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Record time spent by each decoded message in every processing stage. Stage latencies are published as metrics.
+     */
+    public static final ConfigKey<Boolean> SERVER_TRACE = new BooleanConfigKey(
+            "server.trace",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Log stage breakdown of traced messages that take longer than the threshold to process. Value is in
+     * milliseconds. Default value is 1000.
+     */
+    public static final ConfigKey<Long> SERVER_TRACE_THRESHOLD = new LongConfigKey(
+            "server.traceThreshold",
+            List.of(KeyType.CONFIG),
+            1000L);
+
     /**
      * Address for uploading aggregated anonymous usage statistics. Uploaded information is the same you can see on the
      * statistics screen in the web app. It does not include any sensitive (e.g. locations).
@@ -460,14 +528,91 @@ public final class Keys {
             "SELECT 1");
 
     /**
-     * Store original HEX or string data as "raw" attribute in the corresponding position.
+     * Maximum number of positions and events written to the database in a single batch. Batching reduces the number
+     * of database round trips and commits under high load. Batching is disabled by default.
+     */
+    public static final ConfigKey<Integer> DATABASE_BATCH_SIZE = new IntegerConfigKey(
+            "database.batchSize",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Maximum time in milliseconds to wait for more records before writing a batch. Default value is 10 milliseconds.
+     */
+    public static final ConfigKey<Long> DATABASE_BATCH_DELAY = new LongConfigKey(
+            "database.batchDelay",
+            List.of(KeyType.CONFIG),
+            10L);
+
+    /**
+     * Maximum number of records waiting to be written in batches. When the queue is full, for example because the
+     * database is not keeping up, new records are rejected instead of consuming unlimited memory. Default value is
+     * 100000.
+     */
+    public static final ConfigKey<Integer> DATABASE_BATCH_QUEUE_SIZE = new IntegerConfigKey(
+            "database.batchQueueSize",
+            List.of(KeyType.CONFIG),
+            100000);
+
+    /**
+     * Store original HEX or string data as "raw" attribute in the corresponding position. If 'database.archivePath' is
+     * configured, original data is written to the raw message archive instead.
      */
     public static final ConfigKey<Boolean> DATABASE_SAVE_ORIGINAL = new BooleanConfigKey(
             "database.saveOriginal",
             List.of(KeyType.CONFIG));
 
     /**
-     * Throttle unknown device database queries when it sends repeated requests.
+     * Directory for the raw message archive. When set together with 'database.saveOriginal', original messages are
+     * written to compressed daily segment files in this directory instead of the "raw" position attribute. Archived
+     * messages are available through the positions API.
+     */
+    public static final ConfigKey<String> DATABASE_ARCHIVE_PATH = new StringConfigKey(
+            "database.archivePath",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Uncompressed size of a raw archive block in bytes. Larger blocks compress better, but each lookup has to
+     * decompress a whole block. Default value is 65536.
+     */
+    public static final ConfigKey<Integer> DATABASE_ARCHIVE_BLOCK_SIZE = new IntegerConfigKey(
+            "database.archiveBlockSize",
+            List.of(KeyType.CONFIG),
+            65536);
+
+    /**
+     * Maximum time in milliseconds before archived messages are written to disk. Default value is 1000.
+     */
+    public static final ConfigKey<Long> DATABASE_ARCHIVE_FLUSH_DELAY = new LongConfigKey(
+            "database.archiveFlushDelay",
+            List.of(KeyType.CONFIG),
+            1000L);
+
+    /**
+     * Maximum number of messages waiting to be written to the raw archive. Default value is 100000.
+     */
+    public static final ConfigKey<Integer> DATABASE_ARCHIVE_QUEUE_SIZE = new IntegerConfigKey(
+            "database.archiveQueueSize",
+            List.of(KeyType.CONFIG),
+            100000);
+
+    /**
+     * Maximum time period in seconds for a single raw archive lookup. Default value is 604800 (one week).
+     */
+    public static final ConfigKey<Long> DATABASE_ARCHIVE_PERIOD_LIMIT = new LongConfigKey(
+            "database.archivePeriodLimit",
+            List.of(KeyType.CONFIG),
+            604800L);
+
+    /**
+     * Load all devices, their linked objects and latest positions into memory on startup, before the protocol
+     * ports are opened. Avoids per-device database queries when a large number of devices reconnect at once.
+     */
+    public static final ConfigKey<Boolean> DATABASE_PRELOAD = new BooleanConfigKey(
+            "database.preload",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Double the interval between database queries for an unknown device that keeps sending, up to 30 minutes.
      */
     public static final ConfigKey<Boolean> DATABASE_THROTTLE_UNKNOWN = new BooleanConfigKey(
             "database.throttleUnknown",
@@ -699,6 +844,15 @@ public final class Keys {
             List.of(KeyType.CONFIG),
             600L);
 
+    /**
+     * Interval in seconds for saving last update time of online devices. By default every message updates device
+     * status and last update time in the database and notifies all listeners. If set, only status changes are saved
+     * immediately and the last update time is written in batches with the given interval.
+     */
+    public static final ConfigKey<Long> STATUS_UPDATE_INTERVAL = new LongConfigKey(
+            "status.updateInterval",
+            List.of(KeyType.CONFIG));
+
     /**
      * List of protocol names to ignore offline status. Can be useful to not trigger status change when devices are
      * configured to disconnect after reporting a batch of data.
@@ -768,6 +922,40 @@ public final class Keys {
             List.of(KeyType.CONFIG),
             300000L);
 
+    /**
+     * Minimum interval between WebSocket update frames in milliseconds. When set, updates are collected for the
+     * interval and only the latest position of each device is sent. By default updates are sent immediately.
+     */
+    public static final ConfigKey<Long> WEB_SOCKET_INTERVAL = new LongConfigKey(
+            "web.socketInterval",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Maximum amount of data in bytes waiting to be written to a single WebSocket connection. When the limit is
+     * reached, new updates are held back and only the latest position of each device is kept. A connection that
+     * stays over the limit longer than the WebSocket timeout is closed. Default is 4 MB.
+     */
+    public static final ConfigKey<Long> WEB_SOCKET_MAX_BYTES = new LongConfigKey(
+            "web.socketMaxBytes",
+            List.of(KeyType.CONFIG),
+            4194304L);
+
+    /**
+     * Maximum number of frames waiting to be written to a single WebSocket connection. Default is 64.
+     */
+    public static final ConfigKey<Integer> WEB_SOCKET_MAX_FRAMES = new IntegerConfigKey(
+            "web.socketMaxFrames",
+            List.of(KeyType.CONFIG),
+            64);
+
+    /**
+     * Disable permessage-deflate compression for WebSocket connections. By default compression is negotiated with
+     * clients that support it.
+     */
+    public static final ConfigKey<Boolean> WEB_DISABLE_SOCKET_COMPRESSION = new BooleanConfigKey(
+            "web.disableSocketCompression",
+            List.of(KeyType.CONFIG));
+
     /**
      * Authentication sessions timeout in seconds. By default no timeout.
      */
@@ -813,6 +1001,14 @@ public final class Keys {
             List.of(KeyType.CONFIG),
             "max-age=3600,public");
 
+    /**
+     * Enable Prometheus metrics scrape endpoint via '/metrics' URL. The endpoint is not authenticated, so it should
+     * only be reachable from the monitoring network.
+     */
+    public static final ConfigKey<Boolean> WEB_METRICS = new BooleanConfigKey(
+            "web.metrics",
+            List.of(KeyType.CONFIG));
+
     /**
      * Host for raw data forwarding.
      */
@@ -1747,6 +1943,31 @@ public final class Keys {
             List.of(KeyType.CONFIG),
             "day");
 
+    /**
+     * Write log messages from a separate thread. Callers only put messages into a bounded buffer, so slow disk writes
+     * don't block network and processing threads. Messages are written and flushed in batches.
+     */
+    public static final ConfigKey<Boolean> LOGGER_ASYNC = new BooleanConfigKey(
+            "logger.async",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Maximum number of log messages waiting to be written when asynchronous logging is enabled. Default value is 8192.
+     */
+    public static final ConfigKey<Integer> LOGGER_ASYNC_BUFFER_SIZE = new IntegerConfigKey(
+            "logger.async.bufferSize",
+            List.of(KeyType.CONFIG),
+            8192);
+
+    /**
+     * What to do when the asynchronous log buffer is full. Default value is 'block'.
+     * Available options: block (wait for free space), drop (discard new messages and log number of dropped messages).
+     */
+    public static final ConfigKey<String> LOGGER_ASYNC_OVERFLOW = new StringConfigKey(
+            "logger.async.overflow",
+            List.of(KeyType.CONFIG),
+            "block");
+
     /**
      * A list of position attributes to log.
      */
@@ -38,6 +38,9 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Singleton
@@ -49,6 +52,8 @@ public class CommandsManager implements BroadcastInterface {
     private final ConnectionManager connectionManager;
     private final BroadcastService broadcastService;
 
+    private final Map<Long, Integer> queuedCounts = new ConcurrentHashMap<>();
+
     @Inject
     public CommandsManager(
             Storage storage, ServerManager serverManager, @Nullable SmsManager smsManager,
@@ -59,6 +64,12 @@ public class CommandsManager implements BroadcastInterface {
         this.connectionManager = connectionManager;
         this.broadcastService = broadcastService;
         broadcastService.registerListener(this);
+        try {
+            storage.getObjects(QueuedCommand.class, new Request(new Columns.Include("deviceId")))
+                    .forEach(command -> queuedCounts.merge(command.getDeviceId(), 1, Integer::sum));
+        } catch (StorageException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     public boolean sendCommand(Command command) throws Exception {
@@ -85,6 +96,7 @@ public class CommandsManager implements BroadcastInterface {
                 deviceSession.sendCommand(command);
             } else {
                 storage.addObject(QueuedCommand.fromCommand(command), new Request(new Columns.Exclude("id")));
+                queuedCounts.merge(deviceId, 1, Integer::sum);
                 broadcastService.updateCommand(true, deviceId);
                 return false;
             }
@@ -97,15 +109,23 @@ public class CommandsManager implements BroadcastInterface {
     }
 
     public Collection<Command> readQueuedCommands(long deviceId, int count) {
+        Integer queuedCount = queuedCounts.get(deviceId);
+        if (queuedCount == null) {
+            return Collections.emptyList();
+        }
         try {
             var commands = storage.getObjects(QueuedCommand.class, new Request(
                     new Columns.All(),
                     new Condition.Equals("deviceId", deviceId),
                     new Order("id", false, count)));
-            for (var command : commands) {
+            if (!commands.isEmpty()) {
                 storage.removeObject(QueuedCommand.class, new Request(
-                        new Condition.Equals("id", command.getId())));
+                        new Condition.And(
+                                new Condition.Equals("deviceId", deviceId),
+                                new Condition.Compare("id", "<=", "id", commands.get(commands.size() - 1).getId()))));
             }
+            int removed = commands.isEmpty() ? queuedCount : commands.size();
+            queuedCounts.computeIfPresent(deviceId, (id, value) -> value > removed ? value - removed : null);
             return commands.stream().map(QueuedCommand::toCommand).collect(Collectors.toList());
         } catch (StorageException e) {
             throw new RuntimeException(e);
@@ -115,6 +135,7 @@ public class CommandsManager implements BroadcastInterface {
     @Override
     public void updateCommand(boolean local, long deviceId) {
         if (!local) {
+            queuedCounts.merge(deviceId, 1, Integer::sum);
             DeviceSession deviceSession = connectionManager.getDeviceSession(deviceId);
             if (deviceSession != null && deviceSession.supportsLiveCommands()) {
                 for (Command command : readQueuedCommands(deviceId)) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,9 +20,13 @@ import io.netty.util.Timer;
 import io.netty.util.TimerTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.traccar.broadcast.BroadcastInterface;
+import org.traccar.broadcast.BroadcastService;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
+import org.traccar.model.BaseModel;
 import org.traccar.model.Device;
+import org.traccar.session.cache.CacheManager;
 import org.traccar.storage.Storage;
 import org.traccar.storage.StorageException;
 import org.traccar.storage.query.Columns;
@@ -31,12 +35,14 @@ import org.traccar.storage.query.Request;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Singleton
-public class DeviceLookupService {
+public class DeviceLookupService implements BroadcastInterface {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DeviceLookupService.class);
 
@@ -45,14 +51,24 @@ public class DeviceLookupService {
     private static final long THROTTLE_MAX_MS = TimeUnit.MINUTES.toMillis(30);
 
     private final Storage storage;
+    private final CacheManager cacheManager;
     private final Timer timer;
+    private final BroadcastService broadcastService;
 
     private final boolean throttlingEnabled;
 
-    private static class IdentifierInfo {
-        private long lastQuery;
-        private long delay;
-        private Timeout timeout;
+    private static final class IdentifierInfo {
+        private final long lastQuery;
+        private final long delay;
+        private final long generation;
+        private final Timeout timeout;
+
+        private IdentifierInfo(long lastQuery, long delay, long generation, Timeout timeout) {
+            this.lastQuery = lastQuery;
+            this.delay = delay;
+            this.generation = generation;
+            this.timeout = timeout;
+        }
     }
 
     private final class IdentifierTask implements TimerTask {
@@ -65,71 +81,118 @@ public class DeviceLookupService {
         @Override
         public void run(Timeout timeout) {
             LOGGER.debug("Device lookup expired {}", uniqueId);
-            synchronized (DeviceLookupService.this) {
-                identifierMap.remove(uniqueId);
-            }
+            identifierMap.computeIfPresent(uniqueId, (key, info) -> info.timeout == timeout ? null : info);
         }
     }
 
     private final Map<String, IdentifierInfo> identifierMap = new ConcurrentHashMap<>();
+    private final AtomicLong identifierGeneration = new AtomicLong();
+
+    private final Map<String, Long> uniqueIdIndex = new ConcurrentHashMap<>();
+    private final Map<Long, String> deviceIdIndex = new ConcurrentHashMap<>();
 
     @Inject
-    public DeviceLookupService(Config config, Storage storage, Timer timer) {
+    public DeviceLookupService(
+            Config config, Storage storage, CacheManager cacheManager, Timer timer,
+            BroadcastService broadcastService) {
         this.storage = storage;
+        this.cacheManager = cacheManager;
         this.timer = timer;
+        this.broadcastService = broadcastService;
         throttlingEnabled = config.getBoolean(Keys.DATABASE_THROTTLE_UNKNOWN);
+        broadcastService.registerListener(this);
     }
 
-    private synchronized boolean isThrottled(String uniqueId) {
-        if (throttlingEnabled) {
-            IdentifierInfo info = identifierMap.get(uniqueId);
-            return info != null && System.currentTimeMillis() < info.lastQuery + info.delay;
-        } else {
-            return false;
+    private boolean isThrottled(String uniqueId) {
+        IdentifierInfo info = identifierMap.get(uniqueId);
+        return info != null && info.generation == identifierGeneration.get()
+                && System.currentTimeMillis() < info.lastQuery + info.delay;
+    }
+
+    private void lookupSucceeded(String uniqueId, long deviceId) {
+        addIndex(uniqueId, deviceId);
+        IdentifierInfo info = identifierMap.remove(uniqueId);
+        if (info != null) {
+            info.timeout.cancel();
         }
     }
 
-    private synchronized void lookupSucceeded(String uniqueId) {
-        if (throttlingEnabled) {
-            IdentifierInfo info = identifierMap.remove(uniqueId);
+    private void lookupFailed(String uniqueId) {
+        long generation = identifierGeneration.get();
+        identifierMap.compute(uniqueId, (key, info) -> {
+            long delay = THROTTLE_MIN_MS;
             if (info != null) {
                 info.timeout.cancel();
+                if (throttlingEnabled && info.generation == generation) {
+                    delay = Math.min(info.delay * 2, THROTTLE_MAX_MS);
+                }
             }
+            LOGGER.debug("Device lookup {} throttled for {} ms", uniqueId, delay);
+            long expiration = throttlingEnabled ? INFO_TIMEOUT_MS : delay;
+            return new IdentifierInfo(System.currentTimeMillis(), delay, generation,
+                    timer.newTimeout(new IdentifierTask(uniqueId), expiration, TimeUnit.MILLISECONDS));
+        });
+    }
+
+    private void addIndex(String uniqueId, long deviceId) {
+        String previous = deviceIdIndex.put(deviceId, uniqueId);
+        if (previous != null && !previous.equals(uniqueId)) {
+            uniqueIdIndex.remove(previous, deviceId);
         }
+        uniqueIdIndex.put(uniqueId, deviceId);
     }
 
-    private synchronized void lookupFailed(String uniqueId) {
-        if (throttlingEnabled) {
-            IdentifierInfo info = identifierMap.get(uniqueId);
-            if (info != null) {
-                info.timeout.cancel();
-                info.delay = Math.min(info.delay * 2, THROTTLE_MAX_MS);
-            } else {
-                info = new IdentifierInfo();
-                identifierMap.put(uniqueId, info);
-                info.delay = THROTTLE_MIN_MS;
+    private void removeIndex(long deviceId) {
+        String uniqueId = deviceIdIndex.remove(deviceId);
+        if (uniqueId != null) {
+            uniqueIdIndex.remove(uniqueId, deviceId);
+        }
+    }
+
+    public void preload(Collection<Device> devices) {
+        devices.forEach(device -> addIndex(device.getUniqueId(), device.getId()));
+    }
+
+    private Device lookupIndex(String uniqueId) throws StorageException {
+        Long deviceId = uniqueIdIndex.get(uniqueId);
+        if (deviceId != null) {
+            Device device = cacheManager.getObject(Device.class, deviceId);
+            if (device == null) {
+                device = storage.getObject(Device.class, new Request(
+                        new Columns.All(), new Condition.Equals("id", deviceId)));
             }
-            info.lastQuery = System.currentTimeMillis();
-            info.timeout = timer.newTimeout(new IdentifierTask(uniqueId), INFO_TIMEOUT_MS, TimeUnit.MILLISECONDS);
-            LOGGER.debug("Device lookup {} throttled for {} ms", uniqueId, info.delay);
+            if (device != null && device.getUniqueId().equals(uniqueId)) {
+                return device;
+            }
+            uniqueIdIndex.remove(uniqueId, deviceId);
+            deviceIdIndex.remove(deviceId, uniqueId);
         }
+        return null;
     }
 
     public Device lookup(String[] uniqueIds) {
         Device device = null;
         try {
             for (String uniqueId : uniqueIds) {
-                if (!isThrottled(uniqueId)) {
-                    device = storage.getObject(Device.class, new Request(
-                            new Columns.All(), new Condition.Equals("uniqueId", uniqueId)));
-                    if (device != null) {
-                        lookupSucceeded(uniqueId);
-                        break;
+                device = lookupIndex(uniqueId);
+                if (device != null) {
+                    break;
+                }
+            }
+            if (device == null) {
+                for (String uniqueId : uniqueIds) {
+                    if (!isThrottled(uniqueId)) {
+                        device = storage.getObject(Device.class, new Request(
+                                new Columns.All(), new Condition.Equals("uniqueId", uniqueId)));
+                        if (device != null) {
+                            lookupSucceeded(uniqueId, device.getId());
+                            break;
+                        } else {
+                            lookupFailed(uniqueId);
+                        }
                     } else {
-                        lookupFailed(uniqueId);
+                        LOGGER.debug("Device lookup throttled {}", uniqueId);
                     }
-                } else {
-                    LOGGER.debug("Device lookup throttled {}", uniqueId);
                 }
             }
         } catch (StorageException e) {
@@ -138,4 +201,24 @@ public class DeviceLookupService {
         return device;
     }
 
+    /**
+     * Update index with a created or edited device, so an identifier cached as unknown is found immediately. Other
+     * instances are notified if local is set.
+     */
+    public void refresh(boolean local, Device device) {
+        lookupSucceeded(device.getUniqueId(), device.getId());
+        if (local) {
+            broadcastService.invalidateObject(true, Device.class, device.getId());
+        }
+    }
+
+    @Override
+    public void invalidateObject(boolean local, Class<? extends BaseModel> clazz, long id) {
+        if (clazz.equals(Device.class)) {
+            removeIndex(id);
+            // new identifier of the device is not known, so all unknown identifiers are checked again
+            identifierGeneration.incrementAndGet();
+        }
+    }
+
 }
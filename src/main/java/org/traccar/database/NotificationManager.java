@@ -1,5 +1,5 @@
 /*
- * Copyright 2016 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2016 - 2023 Anton Tananaev (anton@traccar.org)
  * Copyright 2016 - 2018 Andrey Kunitsyn (andrey@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
@@ -16,6 +16,7 @@
  */
 package org.traccar.database;
 
+import io.netty.util.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.traccar.config.Config;
@@ -23,6 +24,7 @@ import org.traccar.config.Keys;
 import org.traccar.forward.EventData;
 import org.traccar.forward.EventForwarder;
 import org.traccar.geocoder.Geocoder;
+import org.traccar.metrics.NotificationEvent;
 import org.traccar.model.Calendar;
 import org.traccar.model.Device;
 import org.traccar.model.Event;
@@ -33,17 +35,21 @@ import org.traccar.model.Position;
 import org.traccar.notification.MessageException;
 import org.traccar.notification.NotificatorManager;
 import org.traccar.session.cache.CacheManager;
-import org.traccar.storage.Storage;
+import org.traccar.storage.BatchWriter;
 import org.traccar.storage.StorageException;
-import org.traccar.storage.query.Columns;
-import org.traccar.storage.query.Request;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 @Singleton
@@ -51,7 +57,10 @@ public class NotificationManager {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NotificationManager.class);
 
-    private final Storage storage;
+    private static final int EXECUTOR_THREADS = 4;
+    private static final int EXECUTOR_QUEUE_SIZE = 10000;
+
+    private final BatchWriter batchWriter;
     private final CacheManager cacheManager;
     private final EventForwarder eventForwarder;
     private final NotificatorManager notificatorManager;
@@ -59,26 +68,53 @@ public class NotificationManager {
 
     private final boolean geocodeOnRequest;
 
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            EXECUTOR_THREADS, EXECUTOR_THREADS, 1, TimeUnit.MINUTES, new ArrayBlockingQueue<>(EXECUTOR_QUEUE_SIZE),
+            new DefaultThreadFactory("notification", true), new ThreadPoolExecutor.CallerRunsPolicy());
+
     @Inject
     public NotificationManager(
-            Config config, Storage storage, CacheManager cacheManager, @Nullable EventForwarder eventForwarder,
+            Config config, BatchWriter batchWriter, CacheManager cacheManager, @Nullable EventForwarder eventForwarder,
             NotificatorManager notificatorManager, @Nullable Geocoder geocoder) {
-        this.storage = storage;
+        this.batchWriter = batchWriter;
         this.cacheManager = cacheManager;
         this.eventForwarder = eventForwarder;
         this.notificatorManager = notificatorManager;
         this.geocoder = geocoder;
         geocodeOnRequest = config.getBoolean(Keys.GEOCODER_ON_REQUEST);
+        executor.allowCoreThreadTimeOut(true);
     }
 
     private void updateEvent(Event event, Position position) {
-        try {
-            event.setId(storage.addObject(event, new Request(new Columns.Exclude("id"))));
-        } catch (StorageException error) {
-            LOGGER.warn("Event save error", error);
+        var notifications = findNotifications(event);
+        if (!notifications.isEmpty() && position != null && position.getAddress() == null
+                && geocodeOnRequest && geocoder != null) {
+            position.setAddress(geocoder.getAddress(position.getLatitude(), position.getLongitude(), null));
         }
 
-        var notifications = cacheManager.getDeviceObjects(event.getDeviceId(), Notification.class).stream()
+        CompletableFuture<Long> future = batchWriter.addObject(event);
+        BiConsumer<Long, Throwable> action = (id, error) -> {
+            try {
+                if (error != null) {
+                    LOGGER.warn("Event save error", error);
+                } else {
+                    event.setId(id);
+                }
+                sendNotifications(event, position, notifications);
+            } finally {
+                cacheManager.removeDevice(event.getDeviceId());
+            }
+        };
+        if (future.isDone()) {
+            future.whenComplete(action);
+        } else {
+            // don't run notificators on the batch writer thread
+            future.whenCompleteAsync(action, executor);
+        }
+    }
+
+    private List<Notification> findNotifications(Event event) {
+        return cacheManager.getDeviceObjects(event.getDeviceId(), Notification.class).stream()
                 .filter(notification -> notification.getType().equals(event.getType()))
                 .filter(notification -> {
                     if (event.getType().equals(Event.TYPE_ALARM)) {
@@ -97,24 +133,33 @@ public class NotificationManager {
                     return calendar == null || calendar.checkMoment(event.getEventTime());
                 })
                 .collect(Collectors.toUnmodifiableList());
+    }
 
-        if (!notifications.isEmpty()) {
-            if (position != null && position.getAddress() == null && geocodeOnRequest && geocoder != null) {
-                position.setAddress(geocoder.getAddress(position.getLatitude(), position.getLongitude(), null));
-            }
-
-            notifications.forEach(notification -> {
-                cacheManager.getNotificationUsers(notification.getId(), event.getDeviceId()).forEach(user -> {
-                    for (String notificator : notification.getNotificatorsTypes()) {
-                        try {
-                            notificatorManager.getNotificator(notificator).send(notification, user, event, position);
-                        } catch (MessageException exception) {
-                            LOGGER.warn("Notification failed", exception);
+    private void sendNotifications(Event event, Position position, List<Notification> notifications) {
+        notifications.forEach(notification -> {
+            cacheManager.getNotificationUsers(notification.getId(), event.getDeviceId()).forEach(user -> {
+                for (String notificator : notification.getNotificatorsTypes()) {
+                    NotificationEvent notificationEvent = new NotificationEvent();
+                    notificationEvent.begin();
+                    boolean success = false;
+                    try {
+                        notificatorManager.getNotificator(notificator).send(notification, user, event, position);
+                        success = true;
+                    } catch (MessageException exception) {
+                        LOGGER.warn("Notification failed", exception);
+                    } finally {
+                        notificationEvent.end();
+                        if (notificationEvent.shouldCommit()) {
+                            notificationEvent.setNotificator(notificator);
+                            notificationEvent.setEventType(event.getType());
+                            notificationEvent.setUserId(user.getId());
+                            notificationEvent.setSuccess(success);
+                            notificationEvent.commit();
                         }
                     }
-                });
+                }
             });
-        }
+        });
 
         forwardEvent(event, position);
     }
@@ -145,12 +190,10 @@ public class NotificationManager {
             Position position = entry.getValue();
             try {
                 cacheManager.addDevice(event.getDeviceId());
-                updateEvent(event, position);
             } catch (StorageException e) {
                 throw new RuntimeException(e);
-            } finally {
-                cacheManager.removeDevice(event.getDeviceId());
             }
+            updateEvent(event, position);
         }
     }
 }
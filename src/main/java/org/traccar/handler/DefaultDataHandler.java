@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2015 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,40 +16,58 @@
 package org.traccar.handler;
 
 import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.traccar.BaseDataHandler;
+import org.traccar.ProcessingExecutor;
+import org.traccar.metrics.Counter;
+import org.traccar.metrics.Histogram;
+import org.traccar.metrics.MetricsRegistry;
 import org.traccar.model.Position;
-import org.traccar.storage.Storage;
-import org.traccar.storage.query.Columns;
-import org.traccar.storage.query.Request;
+import org.traccar.storage.BatchWriter;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 @Singleton
 @ChannelHandler.Sharable
-public class DefaultDataHandler extends BaseDataHandler {
+public class DefaultDataHandler extends ChannelInboundHandlerAdapter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultDataHandler.class);
 
-    private final Storage storage;
+    private final BatchWriter batchWriter;
+    private final Counter positionsStored;
+    private final Histogram storeLatency;
 
     @Inject
-    public DefaultDataHandler(Storage storage) {
-        this.storage = storage;
+    public DefaultDataHandler(BatchWriter batchWriter, MetricsRegistry metricsRegistry) {
+        this.batchWriter = batchWriter;
+        positionsStored = metricsRegistry.counter(
+                "traccar_positions_stored_total", "Positions written to the database", "result");
+        storeLatency = metricsRegistry.histogram(
+                "traccar_position_store_seconds", "Position write latency", Histogram.LATENCY_BUCKETS);
     }
 
     @Override
-    protected Position handlePosition(Position position) {
-
-        try {
-            position.setId(storage.addObject(position, new Request(new Columns.Exclude("id"))));
-        } catch (Exception error) {
-            LOGGER.warn("Failed to store position", error);
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof Position) {
+            Position position = (Position) msg;
+            long start = System.nanoTime();
+            batchWriter.addObject(position).whenComplete((id, error) -> {
+                storeLatency.observeSince(start);
+                if (error != null) {
+                    positionsStored.labels("error").increment();
+                    LOGGER.warn("Failed to store position", error);
+                } else {
+                    positionsStored.labels("success").increment();
+                    position.setId(id);
+                }
+                ProcessingExecutor.fireChannelRead(ctx, position);
+            });
+        } else {
+            super.channelRead(ctx, msg);
         }
-
-        return position;
     }
 
 }
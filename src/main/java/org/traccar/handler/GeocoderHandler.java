@@ -1,5 +1,5 @@
 /*
- * Copyright 2012 - 2021 Anton Tananaev (anton@traccar.org)
+ * Copyright 2012 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,9 +20,12 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.traccar.ProcessingExecutor;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
 import org.traccar.geocoder.Geocoder;
+import org.traccar.metrics.Histogram;
+import org.traccar.metrics.MetricsRegistry;
 import org.traccar.model.Position;
 import org.traccar.session.cache.CacheManager;
 
@@ -36,10 +39,14 @@ public class GeocoderHandler extends ChannelInboundHandlerAdapter {
     private final boolean ignorePositions;
     private final boolean processInvalidPositions;
     private final int reuseDistance;
+    private final Histogram latency;
 
-    public GeocoderHandler(Config config, Geocoder geocoder, CacheManager cacheManager) {
+    public GeocoderHandler(
+            Config config, Geocoder geocoder, CacheManager cacheManager, MetricsRegistry metricsRegistry) {
         this.geocoder = geocoder;
         this.cacheManager = cacheManager;
+        latency = metricsRegistry.histogram(
+                "traccar_geocoder_seconds", "Reverse geocoding latency", Histogram.LATENCY_BUCKETS);
         ignorePositions = config.getBoolean(Keys.GEOCODER_IGNORE_POSITIONS);
         processInvalidPositions = config.getBoolean(Keys.GEOCODER_PROCESS_INVALID_POSITIONS);
         reuseDistance = config.getInteger(Keys.GEOCODER_REUSE_DISTANCE, 0);
@@ -60,18 +67,21 @@ public class GeocoderHandler extends ChannelInboundHandlerAdapter {
                     }
                 }
 
+                long start = System.nanoTime();
                 geocoder.getAddress(position.getLatitude(), position.getLongitude(),
                         new Geocoder.ReverseGeocoderCallback() {
                     @Override
                     public void onSuccess(String address) {
+                        latency.observeSince(start);
                         position.setAddress(address);
-                        ctx.fireChannelRead(position);
+                        ProcessingExecutor.fireChannelRead(ctx, position);
                     }
 
                     @Override
                     public void onFailure(Throwable e) {
+                        latency.observeSince(start);
                         LOGGER.warn("Geocoding failed", e);
-                        ctx.fireChannelRead(position);
+                        ProcessingExecutor.fireChannelRead(ctx, position);
                     }
                 });
             } else {
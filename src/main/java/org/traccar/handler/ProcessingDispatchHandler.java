@@ -0,0 +1,124 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.handler;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.ProcessingExecutor;
+import org.traccar.model.Position;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passes positions to processing handlers one at a time per device. Next position of a device is held back until the
+ * previous one is handled, so processing always sees the state left by the preceding position, even if some handlers
+ * complete asynchronously.
+ */
+public class ProcessingDispatchHandler extends ChannelDuplexHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessingDispatchHandler.class);
+
+    private static final long STALL_TIMEOUT = TimeUnit.MINUTES.toNanos(1);
+
+    private final ProcessingExecutor executor;
+
+    private final Map<Long, DeviceQueue> queues = new HashMap<>();
+
+    private static final class DeviceQueue {
+        private final Queue<Position> waiting = new ArrayDeque<>();
+        private Position current;
+        private long started;
+    }
+
+    public ProcessingDispatchHandler(ProcessingExecutor executor) {
+        this.executor = executor;
+    }
+
+    private synchronized Position offer(Position position) {
+        DeviceQueue queue = queues.get(position.getDeviceId());
+        if (queue == null) {
+            queue = new DeviceQueue();
+            queues.put(position.getDeviceId(), queue);
+            return start(queue, position);
+        }
+        queue.waiting.add(position);
+        if (System.nanoTime() - queue.started > STALL_TIMEOUT) {
+            LOGGER.warn("Position processing stalled for device {}", position.getDeviceId());
+            return start(queue, queue.waiting.remove());
+        }
+        return null;
+    }
+
+    private synchronized Position complete(Position position) {
+        DeviceQueue queue = queues.get(position.getDeviceId());
+        if (queue != null && queue.current == position) {
+            Position next = queue.waiting.poll();
+            if (next != null) {
+                return start(queue, next);
+            }
+            queues.remove(position.getDeviceId());
+        }
+        return null;
+    }
+
+    private Position start(DeviceQueue queue, Position position) {
+        queue.current = position;
+        queue.started = System.nanoTime();
+        return position;
+    }
+
+    private void dispatch(ChannelHandlerContext ctx, Position position) {
+        if (executor != null) {
+            executor.select(position.getDeviceId()).execute(() -> ctx.fireChannelRead(position));
+        } else {
+            ctx.fireChannelRead(position);
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof Position) {
+            Position next = offer((Position) msg);
+            if (next != null) {
+                dispatch(ctx, next);
+            }
+        } else {
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof AcknowledgementHandler.EventHandled) {
+            Object object = ((AcknowledgementHandler.EventHandled) msg).getObject();
+            if (object instanceof Position) {
+                Position next = complete((Position) object);
+                if (next != null) {
+                    dispatch(ctx, next);
+                }
+            }
+        }
+        super.write(ctx, msg, promise);
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2019 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2019 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -51,6 +51,9 @@ public class StandardLoggingHandler extends ChannelDuplexHandler {
     }
 
     public void log(ChannelHandlerContext ctx, boolean downstream, Object o) {
+        if (!LOGGER.isInfoEnabled()) {
+            return;
+        }
         if (o instanceof NetworkMessage) {
             NetworkMessage networkMessage = (NetworkMessage) o;
             if (networkMessage.getMessage() instanceof ByteBuf) {
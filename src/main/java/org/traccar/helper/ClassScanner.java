@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -51,7 +51,8 @@ public final class ClassScanner {
                 Enumeration<JarEntry> jarEntries = jf.entries();
                 while (jarEntries.hasMoreElements()) {
                     String entryName = jarEntries.nextElement().getName();
-                    if (entryName.startsWith(packagePath) && entryName.length() > packagePath.length() + 5) {
+                    if (entryName.startsWith(packagePath + '/') && entryName.endsWith(".class")
+                            && entryName.indexOf('/', packagePath.length() + 1) < 0) {
                         names.add(entryName.substring(packagePath.length() + 1, entryName.lastIndexOf('.')));
                     }
                 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012 - 2020 Anton Tananaev (anton@traccar.org)
+ * Copyright 2012 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,8 +33,15 @@ import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.ConsoleHandler;
+import java.util.logging.ErrorManager;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -56,11 +63,13 @@ public final class Log {
         private Writer writer;
         private final boolean rotate;
         private final String template;
+        private final boolean immediateFlush;
 
-        RollingFileHandler(String name, boolean rotate, String rotateInterval) {
+        RollingFileHandler(String name, boolean rotate, String rotateInterval, boolean immediateFlush) {
             this.name = name;
             this.rotate = rotate;
             this.template = rotateInterval.equalsIgnoreCase("HOUR") ? "yyyyMMddHH" : "yyyyMMdd";
+            this.immediateFlush = immediateFlush;
         }
 
         @Override
@@ -84,7 +93,9 @@ public final class Log {
                                 new OutputStreamWriter(new FileOutputStream(name, true), StandardCharsets.UTF_8));
                     }
                     writer.write(getFormatter().format(record));
-                    writer.flush();
+                    if (immediateFlush) {
+                        writer.flush();
+                    }
                 } catch (IOException e) {
                     throw new RuntimeException(e);
                 }
@@ -115,6 +126,99 @@ public final class Log {
 
     }
 
+    static class AsyncHandler extends Handler {
+
+        private static final int BATCH_SIZE = 512;
+
+        private final Handler handler;
+        private final BlockingQueue<LogRecord> queue;
+        private final boolean block;
+        private final AtomicLong dropped = new AtomicLong();
+        private final Thread thread;
+        private volatile boolean closed;
+
+        AsyncHandler(Handler handler, int bufferSize, boolean block) {
+            this.handler = handler;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+            this.block = block;
+            thread = new Thread(this::run, "log-writer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void publish(LogRecord record) {
+            if (!closed && handler.isLoggable(record)) {
+                if (block) {
+                    try {
+                        queue.put(record);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                } else if (!queue.offer(record)) {
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+
+        private void run() {
+            List<LogRecord> batch = new ArrayList<>(BATCH_SIZE);
+            while (!closed || !queue.isEmpty()) {
+                try {
+                    LogRecord record = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (record != null) {
+                        batch.add(record);
+                        queue.drainTo(batch, BATCH_SIZE - 1);
+                        write(batch);
+                        batch.clear();
+                    }
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+
+        private void write(List<LogRecord> batch) {
+            long count = dropped.getAndSet(0);
+            if (count > 0) {
+                publishRecord(new LogRecord(Level.WARNING, "Dropped " + count + " log messages"));
+            }
+            for (LogRecord record : batch) {
+                publishRecord(record);
+            }
+            try {
+                handler.flush();
+            } catch (RuntimeException e) {
+                reportError(null, e, ErrorManager.FLUSH_FAILURE);
+            }
+        }
+
+        private void publishRecord(LogRecord record) {
+            try {
+                handler.publish(record);
+            } catch (RuntimeException e) {
+                reportError(null, e, ErrorManager.WRITE_FAILURE);
+            }
+        }
+
+        @Override
+        public void flush() {
+            handler.flush();
+        }
+
+        @Override
+        public void close() throws SecurityException {
+            closed = true;
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handler.close();
+        }
+
+    }
+
     public static class LogFormatter extends Formatter {
 
         private final boolean fullStackTraces;
@@ -180,7 +284,7 @@ public final class Log {
             }
             path = new File(logsPath, "tracker-server.log").getPath();
         }
-        setupLogger(path == null, path, Level.WARNING.getName(), false, true, "DAY");
+        setupLogger(path == null, path, Level.WARNING.getName(), false, true, "DAY", false);
     }
 
     public static void setupLogger(Config config) {
@@ -190,23 +294,35 @@ public final class Log {
                 config.getString(Keys.LOGGER_LEVEL),
                 config.getBoolean(Keys.LOGGER_FULL_STACK_TRACES),
                 config.getBoolean(Keys.LOGGER_ROTATE),
-                config.getString(Keys.LOGGER_ROTATE_INTERVAL));
+                config.getString(Keys.LOGGER_ROTATE_INTERVAL),
+                config.getBoolean(Keys.LOGGER_ASYNC));
+
+        if (config.getBoolean(Keys.LOGGER_ASYNC)) {
+            Logger rootLogger = Logger.getLogger("");
+            for (Handler handler : rootLogger.getHandlers()) {
+                rootLogger.removeHandler(handler);
+                rootLogger.addHandler(new AsyncHandler(
+                        handler, config.getInteger(Keys.LOGGER_ASYNC_BUFFER_SIZE),
+                        config.getString(Keys.LOGGER_ASYNC_OVERFLOW).equalsIgnoreCase("block")));
+            }
+        }
     }
 
     private static void setupLogger(
             boolean console, String file, String levelString,
-            boolean fullStackTraces, boolean rotate, String rotateInterval) {
+            boolean fullStackTraces, boolean rotate, String rotateInterval, boolean async) {
 
         Logger rootLogger = Logger.getLogger("");
         for (Handler handler : rootLogger.getHandlers()) {
             rootLogger.removeHandler(handler);
+            handler.close();
         }
 
         Handler handler;
         if (console) {
             handler = new ConsoleHandler();
         } else {
-            handler = new RollingFileHandler(file, rotate, rotateInterval);
+            handler = new RollingFileHandler(file, rotate, rotateInterval, !async);
         }
 
         handler.setFormatter(new LogFormatter(fullStackTraces));
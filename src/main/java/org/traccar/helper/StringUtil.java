@@ -29,4 +29,31 @@ public final class StringUtil {
         return false;
     }
 
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L};
+
+    /**
+     * Append value with a fixed number of decimal places, rounding half up, without creating intermediate strings.
+     */
+    public static StringBuilder appendDecimal(StringBuilder builder, double value, int decimals) {
+        double scaled = Math.abs(value) * POWERS_OF_TEN[decimals];
+        if (Double.isNaN(value) || Double.isInfinite(value) || scaled >= Long.MAX_VALUE) {
+            return builder.append(value);
+        }
+        long rounded = Math.round(scaled);
+        if (value < 0 || value == 0 && 1 / value < 0) {
+            builder.append('-');
+        }
+        builder.append(rounded / POWERS_OF_TEN[decimals]);
+        if (decimals > 0) {
+            builder.append('.');
+            long fraction = rounded % POWERS_OF_TEN[decimals];
+            for (int i = decimals - 1; i > 0 && fraction < POWERS_OF_TEN[i]; i--) {
+                builder.append('0');
+            }
+            builder.append(fraction);
+        }
+        return builder;
+    }
+
 }
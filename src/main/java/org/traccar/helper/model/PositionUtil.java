@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import org.traccar.model.Device;
 import org.traccar.model.Position;
 import org.traccar.model.User;
 import org.traccar.session.cache.CacheManager;
+import org.traccar.session.cache.LatestPositionCache;
 import org.traccar.storage.Storage;
 import org.traccar.storage.StorageException;
 import org.traccar.storage.query.Columns;
@@ -64,17 +65,13 @@ public final class PositionUtil {
                 new Order("fixTime")));
     }
 
-    public static List<Position> getLatestPositions(Storage storage, long userId) throws StorageException {
+    public static List<Position> getLatestPositions(
+            Storage storage, LatestPositionCache latestPositionCache, long userId) throws StorageException {
         var devices = storage.getObjects(Device.class, new Request(
                 new Columns.Include("id"),
                 new Condition.Permission(User.class, userId, Device.class)));
-        var deviceIds = devices.stream().map(BaseModel::getId).collect(Collectors.toUnmodifiableSet());
-
-        var positions = storage.getObjects(Position.class, new Request(
-                new Columns.All(), new Condition.LatestPositions()));
-        return positions.stream()
-                .filter(position -> deviceIds.contains(position.getDeviceId()))
-                .collect(Collectors.toList());
+        var deviceIds = devices.stream().map(BaseModel::getId).collect(Collectors.toList());
+        return latestPositionCache.getPositions(deviceIds);
     }
 
 }
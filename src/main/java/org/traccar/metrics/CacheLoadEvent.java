@@ -0,0 +1,50 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.traccar.CacheLoad")
+@Label("Device Cache Load")
+@Category({"Traccar", "Cache"})
+@Description("Loading of a device and its linked objects into the cache")
+public class CacheLoadEvent extends jdk.jfr.Event {
+
+    @Label("Device Id")
+    private long deviceId;
+
+    @Label("Queries")
+    private int queries;
+
+    @Label("Objects")
+    private int objects;
+
+    public void setDeviceId(long deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public void setQueries(int queries) {
+        this.queries = queries;
+    }
+
+    public void setObjects(int objects) {
+        this.objects = objects;
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Counter extends Metric {
+
+    private final String[] labelNames;
+    private final Map<List<String>, LongAdder> children = new ConcurrentHashMap<>();
+
+    public Counter(String name, String help, String... labelNames) {
+        super(name, help, "counter");
+        this.labelNames = labelNames;
+    }
+
+    public LongAdder labels(String... values) {
+        if (values.length != labelNames.length) {
+            throw new IllegalArgumentException("Expected " + labelNames.length + " label values");
+        }
+        return children.computeIfAbsent(List.of(values), key -> new LongAdder());
+    }
+
+    public void increment() {
+        labels().increment();
+    }
+
+    public long get(String... values) {
+        LongAdder child = children.get(List.of(values));
+        return child != null ? child.sum() : 0;
+    }
+
+    @Override
+    protected void writeSamples(StringBuilder builder) {
+        Map<String, Long> samples = new TreeMap<>();
+        children.forEach((values, child) -> samples.put(formatLabels(labelNames, values), child.sum()));
+        samples.forEach((labels, value) -> writeSample(builder, getName(), labels, value));
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.traccar.Decode")
+@Label("Message Decode")
+@Category({"Traccar", "Protocol"})
+@Description("Decoding of a single message by a protocol decoder")
+public class DecodeEvent extends jdk.jfr.Event {
+
+    @Label("Protocol")
+    private String protocol;
+
+    @Label("Size")
+    @DataAmount
+    private int bytes;
+
+    @Label("Positions")
+    private int positions;
+
+    public void setProtocol(String protocol) {
+        this.protocol = protocol;
+    }
+
+    public void setBytes(int bytes) {
+        this.bytes = bytes;
+    }
+
+    public void setPositions(int positions) {
+        this.positions = positions;
+    }
+
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.metrics;
+
+import java.util.function.DoubleSupplier;
+
+public class Gauge extends Metric {
+
+    private final DoubleSupplier supplier;
+
+    public Gauge(String name, String help, String type, DoubleSupplier supplier) {
+        super(name, help, type);
+        this.supplier = supplier;
+    }
+
+    @Override
+    protected void writeSamples(StringBuilder builder) {
+        writeSample(builder, getName(), null, supplier.getAsDouble());
+    }
+
+}
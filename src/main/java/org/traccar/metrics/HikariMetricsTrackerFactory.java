@@ -0,0 +1,69 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+
+public class HikariMetricsTrackerFactory implements MetricsTrackerFactory {
+
+    private final MetricsRegistry metricsRegistry;
+
+    public HikariMetricsTrackerFactory(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+
+        metricsRegistry.gauge("traccar_database_connections_active",
+                "Database connections in use", poolStats::getActiveConnections);
+        metricsRegistry.gauge("traccar_database_connections_idle",
+                "Idle database connections", poolStats::getIdleConnections);
+        metricsRegistry.gauge("traccar_database_connections_max",
+                "Maximum database pool size", poolStats::getMaxConnections);
+        metricsRegistry.gauge("traccar_database_connections_pending",
+                "Threads waiting for a database connection", poolStats::getPendingThreads);
+
+        Histogram acquire = metricsRegistry.histogram("traccar_database_connection_wait_seconds",
+                "Time spent waiting for a database connection", Histogram.LATENCY_BUCKETS);
+        Histogram usage = metricsRegistry.histogram("traccar_database_connection_usage_seconds",
+                "Time a database connection is held", Histogram.LATENCY_BUCKETS);
+        Counter timeouts = metricsRegistry.counter("traccar_database_connection_timeouts_total",
+                "Database connection acquisition timeouts");
+
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquire.observeNanos(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.observeNanos(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+}
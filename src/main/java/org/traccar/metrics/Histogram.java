@@ -0,0 +1,122 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Histogram extends Metric {
+
+    public static final double[] LATENCY_BUCKETS = {
+            0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private final double[] buckets;
+    private final String[] labelNames;
+    private final Map<List<String>, Child> children = new ConcurrentHashMap<>();
+
+    public Histogram(String name, String help, double[] buckets, String... labelNames) {
+        super(name, help, "histogram");
+        this.buckets = buckets;
+        this.labelNames = labelNames;
+    }
+
+    public final class Child {
+
+        private final LongAdder[] counts = new LongAdder[buckets.length];
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private Child() {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        public void observe(double value) {
+            for (int i = 0; i < buckets.length; i++) {
+                if (value <= buckets[i]) {
+                    counts[i].increment();
+                    break;
+                }
+            }
+            count.increment();
+            sum.add(value);
+        }
+
+        public void observeNanos(long nanos) {
+            observe(nanos / (double) TimeUnit.SECONDS.toNanos(1));
+        }
+
+        public void observeSince(long startNanos) {
+            observeNanos(System.nanoTime() - startNanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getSum() {
+            return sum.sum();
+        }
+
+        private void write(StringBuilder builder, String labels) {
+            String prefix = labels.isEmpty() ? "" : labels + ",";
+            long total = count.sum();
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += counts[i].sum();
+                writeSample(builder, getName() + "_bucket", prefix + "le=\"" + buckets[i] + "\"",
+                        Math.min(cumulative, total));
+            }
+            writeSample(builder, getName() + "_bucket", prefix + "le=\"+Inf\"", total);
+            writeSample(builder, getName() + "_sum", labels, sum.sum());
+            writeSample(builder, getName() + "_count", labels, total);
+        }
+
+    }
+
+    public Child labels(String... values) {
+        if (values.length != labelNames.length) {
+            throw new IllegalArgumentException("Expected " + labelNames.length + " label values");
+        }
+        return children.computeIfAbsent(List.of(values), key -> new Child());
+    }
+
+    public void observe(double value) {
+        labels().observe(value);
+    }
+
+    public void observeNanos(long nanos) {
+        labels().observeNanos(nanos);
+    }
+
+    public void observeSince(long startNanos) {
+        labels().observeSince(startNanos);
+    }
+
+    @Override
+    protected void writeSamples(StringBuilder builder) {
+        Map<String, Child> samples = new TreeMap<>();
+        children.forEach((values, child) -> samples.put(formatLabels(labelNames, values), child));
+        samples.forEach((labels, child) -> child.write(builder, labels));
+    }
+
+}
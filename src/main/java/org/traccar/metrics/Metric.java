@@ -0,0 +1,85 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.metrics;
+
+public abstract class Metric {
+
+    private final String name;
+    private final String help;
+    private final String type;
+
+    protected Metric(String name, String help, String type) {
+        this.name = name;
+        this.help = help;
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void write(StringBuilder builder) {
+        builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        writeSamples(builder);
+    }
+
+    protected abstract void writeSamples(StringBuilder builder);
+
+    protected static void writeSample(StringBuilder builder, String name, String labels, double value) {
+        builder.append(name);
+        if (labels != null && !labels.isEmpty()) {
+            builder.append('{').append(labels).append('}');
+        }
+        builder.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            builder.append((long) value);
+        } else {
+            builder.append(value);
+        }
+        builder.append('\n');
+    }
+
+    protected static String formatLabels(String[] names, Iterable<String> values) {
+        StringBuilder builder = new StringBuilder();
+        int index = 0;
+        for (String value : values) {
+            if (index > 0) {
+                builder.append(',');
+            }
+            builder.append(names[index++]).append("=\"");
+            for (char c : value.toCharArray()) {
+                switch (c) {
+                    case '\\':
+                        builder.append("\\\\");
+                        break;
+                    case '"':
+                        builder.append("\\\"");
+                        break;
+                    case '\n':
+                        builder.append("\\n");
+                        break;
+                    default:
+                        builder.append(c);
+                        break;
+                }
+            }
+            builder.append('"');
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.metrics;
+
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+@Singleton
+public class MetricsRegistry {
+
+    private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    private <T extends Metric> T register(T metric, Class<T> clazz) {
+        Metric existing = metrics.putIfAbsent(metric.getName(), metric);
+        if (existing == null) {
+            return metric;
+        } else if (clazz.isInstance(existing)) {
+            return clazz.cast(existing);
+        }
+        throw new IllegalArgumentException("Metric " + metric.getName() + " already registered with another type");
+    }
+
+    public Counter counter(String name, String help, String... labelNames) {
+        return register(new Counter(name, help, labelNames), Counter.class);
+    }
+
+    public Histogram histogram(String name, String help, double[] buckets, String... labelNames) {
+        return register(new Histogram(name, help, buckets, labelNames), Histogram.class);
+    }
+
+    public void gauge(String name, String help, DoubleSupplier supplier) {
+        metrics.put(name, new Gauge(name, help, "gauge", supplier));
+    }
+
+    public void counterFunction(String name, String help, DoubleSupplier supplier) {
+        metrics.put(name, new Gauge(name, help, "counter", supplier));
+    }
+
+    public String scrape() {
+        StringBuilder builder = new StringBuilder();
+        new TreeMap<>(metrics).values().forEach(metric -> metric.write(builder));
+        return builder.toString();
+    }
+
+}
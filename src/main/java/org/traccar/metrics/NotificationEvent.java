@@ -0,0 +1,57 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.traccar.Notification")
+@Label("Notification Dispatch")
+@Category({"Traccar", "Notification"})
+@Description("Delivery of an event notification through a notificator")
+public class NotificationEvent extends jdk.jfr.Event {
+
+    @Label("Notificator")
+    private String notificator;
+
+    @Label("Event Type")
+    private String eventType;
+
+    @Label("User Id")
+    private long userId;
+
+    @Label("Success")
+    private boolean success;
+
+    public void setNotificator(String notificator) {
+        this.notificator = notificator;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public void setUserId(long userId) {
+        this.userId = userId;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+}
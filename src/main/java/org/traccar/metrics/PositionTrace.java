@@ -0,0 +1,52 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.metrics;
+
+import java.util.Arrays;
+
+public class PositionTrace {
+
+    private String[] stages = new String[16];
+    private long[] times = new long[16];
+    private int count;
+
+    public void stamp(String stage, long time) {
+        if (count == stages.length) {
+            stages = Arrays.copyOf(stages, count * 2);
+            times = Arrays.copyOf(times, count * 2);
+        }
+        stages[count] = stage;
+        times[count] = time;
+        count += 1;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public String getStage(int index) {
+        return stages[index];
+    }
+
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    public long getStart() {
+        return count > 0 ? times[0] : 0;
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Position;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.TimeUnit;
+
+@Singleton
+public class PositionTracer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PositionTracer.class);
+
+    public static final String STAGE_DECODE = "decode";
+
+    private final boolean enabled;
+    private final long threshold;
+    private final Histogram stageLatency;
+    private final Histogram.Child totalLatency;
+
+    @Inject
+    public PositionTracer(Config config, MetricsRegistry metricsRegistry) {
+        enabled = config.getBoolean(Keys.SERVER_TRACE);
+        threshold = TimeUnit.MILLISECONDS.toNanos(config.getLong(Keys.SERVER_TRACE_THRESHOLD));
+        stageLatency = metricsRegistry.histogram(
+                "traccar_pipeline_stage_seconds", "Time spent by messages in each processing stage",
+                Histogram.LATENCY_BUCKETS, "stage");
+        totalLatency = metricsRegistry.histogram(
+                "traccar_pipeline_seconds", "Time from receiving a message to handling it",
+                Histogram.LATENCY_BUCKETS).labels();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void start(Position position, long startNanos) {
+        if (enabled) {
+            PositionTrace trace = new PositionTrace();
+            trace.stamp(STAGE_DECODE, startNanos);
+            position.setTrace(trace);
+        }
+    }
+
+    public void stage(Position position, String stage) {
+        PositionTrace trace = position.getTrace();
+        if (trace != null) {
+            trace.stamp(stage, System.nanoTime());
+        }
+    }
+
+    public void complete(Position position) {
+        PositionTrace trace = position.getTrace();
+        if (trace == null) {
+            return;
+        }
+        position.setTrace(null);
+
+        long end = System.nanoTime();
+        for (int i = 0; i < trace.getCount(); i++) {
+            long stageEnd = i + 1 < trace.getCount() ? trace.getTime(i + 1) : end;
+            stageLatency.labels(trace.getStage(i)).observeNanos(stageEnd - trace.getTime(i));
+        }
+        long total = end - trace.getStart();
+        totalLatency.observeNanos(total);
+
+        if (total > threshold) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < trace.getCount(); i++) {
+                long stageEnd = i + 1 < trace.getCount() ? trace.getTime(i + 1) : end;
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                builder.append(trace.getStage(i)).append(": ")
+                        .append(TimeUnit.NANOSECONDS.toMillis(stageEnd - trace.getTime(i))).append(" ms");
+            }
+            LOGGER.warn("Slow message from device {} took {} ms ({})",
+                    position.getDeviceId(), TimeUnit.NANOSECONDS.toMillis(total), builder);
+        }
+    }
+
+}
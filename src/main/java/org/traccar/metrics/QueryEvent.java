@@ -0,0 +1,50 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.traccar.Query")
+@Label("Database Query")
+@Category({"Traccar", "Storage"})
+@Description("SQL statement executed by the storage layer")
+public class QueryEvent extends jdk.jfr.Event {
+
+    @Label("Query")
+    private String query;
+
+    @Label("Rows")
+    private long rows;
+
+    @Label("Batch")
+    private boolean batch;
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    public void setBatch(boolean batch) {
+        this.batch = batch;
+    }
+
+}
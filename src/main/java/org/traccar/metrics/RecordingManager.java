@@ -0,0 +1,71 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.metrics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Singleton
+public class RecordingManager {
+
+    public static final Duration MAX_DURATION = Duration.ofHours(1);
+    public static final long MAX_SIZE = 256 * 1024 * 1024;
+
+    private Recording recording;
+
+    public synchronized void start(String configurationName, Duration duration, long maxSize) {
+        Configuration configuration = Configuration.getConfigurations().stream()
+                .filter(item -> item.getName().equals(configurationName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown recording configuration"));
+        if (recording != null) {
+            recording.close();
+        }
+        recording = new Recording(configuration);
+        recording.setName("traccar");
+        recording.setToDisk(true);
+        recording.setDuration(duration.compareTo(MAX_DURATION) > 0 ? MAX_DURATION : duration);
+        recording.setMaxSize(Math.min(maxSize, MAX_SIZE));
+        recording.start();
+    }
+
+    public synchronized void stop() {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+    }
+
+    public synchronized RecordingState getState() {
+        return recording != null ? recording.getState() : null;
+    }
+
+    public synchronized Path dump() throws IOException {
+        if (recording == null || recording.getState() == RecordingState.CLOSED) {
+            return null;
+        }
+        Path path = Files.createTempFile("traccar", ".jfr");
+        recording.dump(path);
+        return path;
+    }
+
+}
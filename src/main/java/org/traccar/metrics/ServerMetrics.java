@@ -0,0 +1,96 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.metrics;
+
+import org.traccar.PositionForwardingHandler;
+import org.traccar.api.AsyncSocketDispatcher;
+import org.traccar.session.cache.CacheManager;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+@Singleton
+public class ServerMetrics {
+
+    private final MetricsRegistry metricsRegistry;
+
+    @Inject
+    public ServerMetrics(
+            MetricsRegistry metricsRegistry, CacheManager cacheManager, AsyncSocketDispatcher socketDispatcher,
+            PositionForwardingHandler positionForwardingHandler) {
+
+        this.metricsRegistry = metricsRegistry;
+
+        metricsRegistry.gauge("traccar_cache_objects",
+                "Objects held in the device cache", cacheManager::getCacheSize);
+        metricsRegistry.gauge("traccar_cache_devices",
+                "Devices held in the device cache", cacheManager::getDeviceCount);
+        metricsRegistry.counterFunction("traccar_cache_hits_total",
+                "Device cache lookups that found the object", cacheManager::getCacheHits);
+        metricsRegistry.counterFunction("traccar_cache_misses_total",
+                "Device cache lookups that missed the object", cacheManager::getCacheMisses);
+
+        metricsRegistry.gauge("traccar_websocket_sessions",
+                "Open websocket sessions", socketDispatcher::getSocketCount);
+        metricsRegistry.gauge("traccar_websocket_queued_bytes",
+                "Bytes queued for all websocket sessions", socketDispatcher::getQueuedBytes);
+        metricsRegistry.gauge("traccar_websocket_queued_bytes_max",
+                "Bytes queued for the slowest websocket session", socketDispatcher::getMaxQueuedBytes);
+
+        metricsRegistry.gauge("traccar_forward_pending",
+                "Position forwarding requests in flight", positionForwardingHandler::getDeliveryPending);
+
+        registerJvm(metricsRegistry);
+    }
+
+    private static void registerJvm(MetricsRegistry metricsRegistry) {
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        metricsRegistry.gauge("jvm_memory_heap_used_bytes",
+                "Used heap memory", () -> memory.getHeapMemoryUsage().getUsed());
+        metricsRegistry.gauge("jvm_memory_heap_committed_bytes",
+                "Committed heap memory", () -> memory.getHeapMemoryUsage().getCommitted());
+        metricsRegistry.gauge("jvm_memory_heap_max_bytes",
+                "Maximum heap memory", () -> memory.getHeapMemoryUsage().getMax());
+        metricsRegistry.gauge("jvm_memory_nonheap_used_bytes",
+                "Used non-heap memory", () -> memory.getNonHeapMemoryUsage().getUsed());
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        metricsRegistry.gauge("jvm_threads_live", "Live threads", threads::getThreadCount);
+        metricsRegistry.gauge("jvm_threads_daemon", "Daemon threads", threads::getDaemonThreadCount);
+
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        metricsRegistry.counterFunction("jvm_gc_collections_total", "Garbage collections",
+                () -> collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum());
+        metricsRegistry.counterFunction("jvm_gc_collection_seconds_total", "Time spent in garbage collection",
+                () -> collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum() / 1000.0);
+
+        metricsRegistry.gauge("jvm_uptime_seconds", "JVM uptime",
+                () -> ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0);
+        metricsRegistry.gauge("system_load_average", "System load average for the last minute",
+                () -> ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage());
+    }
+
+    public String scrape() {
+        return metricsRegistry.scrape();
+    }
+
+}
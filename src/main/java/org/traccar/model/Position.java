@@ -1,5 +1,5 @@
 /*
- * Copyright 2012 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2012 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.traccar.metrics.PositionTrace;
 import org.traccar.storage.QueryIgnore;
 import org.traccar.storage.StorageName;
 
@@ -325,6 +326,20 @@ public class Position extends Message {
         }
     }
 
+    private PositionTrace trace;
+
+    @JsonIgnore
+    @QueryIgnore
+    public PositionTrace getTrace() {
+        return trace;
+    }
+
+    @JsonIgnore
+    @QueryIgnore
+    public void setTrace(PositionTrace trace) {
+        this.trace = trace;
+    }
+
     @JsonIgnore
     @QueryIgnore
     @Override
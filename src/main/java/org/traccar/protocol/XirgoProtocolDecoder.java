@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 - 2020 Anton Tananaev (anton@traccar.org)
+ * Copyright 2015 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,7 @@
 package org.traccar.protocol;
 
 import io.netty.channel.Channel;
-import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.DatagramChannel;
 import org.traccar.BaseProtocolDecoder;
 import org.traccar.session.DeviceSession;
 import org.traccar.NetworkMessage;
@@ -182,7 +182,7 @@ public class XirgoProtocolDecoder extends BaseProtocolDecoder {
 
         String sentence = (String) msg;
 
-        if (channel instanceof NioDatagramChannel) {
+        if (channel instanceof DatagramChannel) {
             Matcher matcher = Pattern.compile("\\$\\$\\d+,(\\d+),.*,(\\d+)##").matcher(sentence);
             if (matcher.matches()) {
                 String response = "!UDP_ACK," + matcher.group(1) + "," + matcher.group(2);
@@ -41,6 +41,7 @@ public class ScheduleManager implements LifecycleObject {
         var tasks = List.of(
                 TaskReports.class,
                 TaskDeviceInactivityCheck.class,
+                TaskDeviceStatusUpdate.class,
                 TaskWebSocketKeepalive.class,
                 TaskHealthCheck.class);
         tasks.forEach(task -> injector.getInstance(task).schedule(executor));
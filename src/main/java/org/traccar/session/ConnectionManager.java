@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2015 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -43,18 +43,17 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 @Singleton
 public class ConnectionManager implements BroadcastInterface {
@@ -62,6 +61,7 @@ public class ConnectionManager implements BroadcastInterface {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionManager.class);
 
     private final long deviceTimeout;
+    private final long updateInterval;
 
     private final Map<Long, DeviceSession> sessionsByDeviceId = new ConcurrentHashMap<>();
     private final Map<Endpoint, Map<String, DeviceSession>> sessionsByEndpoint = new ConcurrentHashMap<>();
@@ -74,11 +74,12 @@ public class ConnectionManager implements BroadcastInterface {
     private final BroadcastService broadcastService;
     private final DeviceLookupService deviceLookupService;
 
-    private final Map<Long, Set<UpdateListener>> listeners = new HashMap<>();
-    private final Map<Long, Set<Long>> userDevices = new HashMap<>();
-    private final Map<Long, Set<Long>> deviceUsers = new HashMap<>();
+    private final Map<Long, Set<UpdateListener>> listeners = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> userDevices = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> deviceUsers = new ConcurrentHashMap<>();
 
     private final Map<Long, Timeout> timeouts = new ConcurrentHashMap<>();
+    private final Map<Long, Device> pendingUpdates = new ConcurrentHashMap<>();
 
     @Inject
     public ConnectionManager(
@@ -93,6 +94,7 @@ public class ConnectionManager implements BroadcastInterface {
         this.broadcastService = broadcastService;
         this.deviceLookupService = deviceLookupService;
         deviceTimeout = config.getLong(Keys.STATUS_TIMEOUT);
+        updateInterval = config.getLong(Keys.STATUS_UPDATE_INTERVAL);
         broadcastService.registerListener(this);
     }
 
@@ -173,6 +175,7 @@ public class ConnectionManager implements BroadcastInterface {
 
         try {
             device.setId(storage.addObject(device, new Request(new Columns.Exclude("id"))));
+            deviceLookupService.refresh(true, device);
             LOGGER.info("Automatically registered " + uniqueId);
             return device;
         } catch (StorageException e) {
@@ -251,17 +254,20 @@ public class ConnectionManager implements BroadcastInterface {
             device.setLastUpdate(time);
         }
 
+        if (updateInterval > 0 && status.equals(Device.STATUS_ONLINE) && status.equals(oldStatus)
+                && timeouts.containsKey(deviceId)) {
+            pendingUpdates.put(deviceId, device);
+            return;
+        }
+        pendingUpdates.remove(deviceId);
+
         Timeout timeout = timeouts.remove(deviceId);
         if (timeout != null) {
             timeout.cancel();
         }
 
         if (status.equals(Device.STATUS_ONLINE)) {
-            timeouts.put(deviceId, timer.newTimeout(timeout1 -> {
-                if (!timeout1.isCancelled()) {
-                    deviceUnknown(deviceId);
-                }
-            }, deviceTimeout, TimeUnit.SECONDS));
+            scheduleTimeout(deviceId, TimeUnit.SECONDS.toMillis(deviceTimeout));
         }
 
         try {
@@ -275,7 +281,43 @@ public class ConnectionManager implements BroadcastInterface {
         updateDevice(true, device);
     }
 
-    public synchronized void sendKeepalive() {
+    private void scheduleTimeout(long deviceId, long delay) {
+        timeouts.put(deviceId, timer.newTimeout(timeout -> {
+            if (!timeout.isCancelled()) {
+                Device device = cacheManager.getObject(Device.class, deviceId);
+                long remaining = 0;
+                if (device != null && device.getLastUpdate() != null) {
+                    remaining = device.getLastUpdate().getTime()
+                            + TimeUnit.SECONDS.toMillis(deviceTimeout) - System.currentTimeMillis();
+                }
+                if (remaining > 0) {
+                    scheduleTimeout(deviceId, remaining);
+                } else {
+                    deviceUnknown(deviceId);
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS));
+    }
+
+    public void flushDeviceUpdates() {
+        List<Device> devices = new ArrayList<>();
+        for (long deviceId : pendingUpdates.keySet()) {
+            Device device = pendingUpdates.remove(deviceId);
+            if (device != null) {
+                devices.add(device);
+            }
+        }
+        if (!devices.isEmpty()) {
+            try {
+                storage.updateObjects(devices, new Columns.Include("lastUpdate"));
+            } catch (StorageException e) {
+                LOGGER.warn("Update devices error", e);
+            }
+            devices.forEach(device -> updateDevice(true, device));
+        }
+    }
+
+    public void sendKeepalive() {
         for (Set<UpdateListener> userListeners : listeners.values()) {
             for (UpdateListener listener : userListeners) {
                 listener.onKeepalive();
@@ -284,7 +326,7 @@ public class ConnectionManager implements BroadcastInterface {
     }
 
     @Override
-    public synchronized void updateDevice(boolean local, Device device) {
+    public void updateDevice(boolean local, Device device) {
         if (local) {
             broadcastService.updateDevice(true, device);
         } else if (Device.STATUS_ONLINE.equals(device.getStatus())) {
@@ -292,37 +334,31 @@ public class ConnectionManager implements BroadcastInterface {
             removeDeviceSession(device.getId());
         }
         for (long userId : deviceUsers.getOrDefault(device.getId(), Collections.emptySet())) {
-            if (listeners.containsKey(userId)) {
-                for (UpdateListener listener : listeners.get(userId)) {
-                    listener.onUpdateDevice(device);
-                }
+            for (UpdateListener listener : listeners.getOrDefault(userId, Collections.emptySet())) {
+                listener.onUpdateDevice(device);
             }
         }
     }
 
     @Override
-    public synchronized void updatePosition(boolean local, Position position) {
+    public void updatePosition(boolean local, Position position) {
         if (local) {
             broadcastService.updatePosition(true, position);
         }
         for (long userId : deviceUsers.getOrDefault(position.getDeviceId(), Collections.emptySet())) {
-            if (listeners.containsKey(userId)) {
-                for (UpdateListener listener : listeners.get(userId)) {
-                    listener.onUpdatePosition(position);
-                }
+            for (UpdateListener listener : listeners.getOrDefault(userId, Collections.emptySet())) {
+                listener.onUpdatePosition(position);
             }
         }
     }
 
     @Override
-    public synchronized void updateEvent(boolean local, long userId, Event event) {
+    public void updateEvent(boolean local, long userId, Event event) {
         if (local) {
             broadcastService.updateEvent(true, userId, event);
         }
-        if (listeners.containsKey(userId)) {
-            for (UpdateListener listener : listeners.get(userId)) {
-                listener.onUpdateEvent(event);
-            }
+        for (UpdateListener listener : listeners.getOrDefault(userId, Collections.emptySet())) {
+            listener.onUpdateEvent(event);
         }
     }
 
@@ -334,7 +370,7 @@ public class ConnectionManager implements BroadcastInterface {
         if (clazz1.equals(User.class) && clazz2.equals(Device.class)) {
             if (listeners.containsKey(id1)) {
                 userDevices.get(id1).add(id2);
-                deviceUsers.put(id2, new HashSet<>(List.of(id1)));
+                deviceUsers.computeIfAbsent(id2, id -> ConcurrentHashMap.newKeySet()).add(id1);
             }
         }
     }
@@ -349,13 +385,16 @@ public class ConnectionManager implements BroadcastInterface {
     public synchronized void addListener(long userId, UpdateListener listener) throws StorageException {
         var set = listeners.get(userId);
         if (set == null) {
-            set = new HashSet<>();
+            set = ConcurrentHashMap.newKeySet();
             listeners.put(userId, set);
 
             var devices = storage.getObjects(Device.class, new Request(
                     new Columns.Include("id"), new Condition.Permission(User.class, userId, Device.class)));
-            userDevices.put(userId, devices.stream().map(BaseModel::getId).collect(Collectors.toSet()));
-            devices.forEach(device -> deviceUsers.computeIfAbsent(device.getId(), id -> new HashSet<>()).add(userId));
+            Set<Long> deviceIds = ConcurrentHashMap.newKeySet();
+            devices.forEach(device -> deviceIds.add(device.getId()));
+            userDevices.put(userId, deviceIds);
+            devices.forEach(device -> deviceUsers.computeIfAbsent(
+                    device.getId(), id -> ConcurrentHashMap.newKeySet()).add(userId));
         }
         set.add(listener);
     }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import org.slf4j.LoggerFactory;
 import org.traccar.broadcast.BroadcastInterface;
 import org.traccar.broadcast.BroadcastService;
 import org.traccar.config.Config;
+import org.traccar.metrics.CacheLoadEvent;
 import org.traccar.model.Attribute;
 import org.traccar.model.BaseModel;
 import org.traccar.model.Calendar;
@@ -30,6 +31,7 @@ import org.traccar.model.Group;
 import org.traccar.model.GroupedModel;
 import org.traccar.model.Maintenance;
 import org.traccar.model.Notification;
+import org.traccar.model.Permission;
 import org.traccar.model.Position;
 import org.traccar.model.ScheduledModel;
 import org.traccar.model.Server;
@@ -53,8 +55,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 @Singleton
@@ -62,6 +64,7 @@ public class CacheManager implements BroadcastInterface {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CacheManager.class);
     private static final int GROUP_DEPTH_LIMIT = 3;
+    private static final int LOCK_STRIPES = 256;
     private static final Collection<Class<? extends BaseModel>> CLASSES = Arrays.asList(
             Attribute.class, Driver.class, Geofence.class, Maintenance.class, Notification.class);
 
@@ -69,21 +72,27 @@ public class CacheManager implements BroadcastInterface {
     private final Storage storage;
     private final BroadcastService broadcastService;
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object[] deviceLocks = new Object[LOCK_STRIPES];
 
-    private final Map<CacheKey, CacheValue> deviceCache = new HashMap<>();
-    private final Map<Long, Integer> deviceReferences = new HashMap<>();
-    private final Map<Long, Map<Class<? extends BaseModel>, Set<Long>>> deviceLinks = new HashMap<>();
-    private final Map<Long, Position> devicePositions = new HashMap<>();
+    private final Map<CacheKey, CacheValue> deviceCache = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> deviceReferences = new ConcurrentHashMap<>();
+    private final Map<Long, Map<Class<? extends BaseModel>, Set<Long>>> deviceLinks = new ConcurrentHashMap<>();
+    private final Map<Long, Position> devicePositions = new ConcurrentHashMap<>();
 
-    private Server server;
-    private final Map<Long, List<User>> notificationUsers = new HashMap<>();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    private volatile Server server;
+    private volatile Map<Long, List<User>> notificationUsers = Collections.emptyMap();
 
     @Inject
     public CacheManager(Config config, Storage storage, BroadcastService broadcastService) throws StorageException {
         this.config = config;
         this.storage = storage;
         this.broadcastService = broadcastService;
+        for (int i = 0; i < deviceLocks.length; i++) {
+            deviceLocks[i] = new Object();
+        }
         invalidateServer();
         invalidateUsers();
         broadcastService.registerListener(this);
@@ -94,65 +103,62 @@ public class CacheManager implements BroadcastInterface {
     }
 
     public <T extends BaseModel> T getObject(Class<T> clazz, long id) {
-        try {
-            lock.readLock().lock();
-            var cacheValue = deviceCache.get(new CacheKey(clazz, id));
-            return cacheValue != null ? cacheValue.getValue() : null;
-        } finally {
-            lock.readLock().unlock();
+        var cacheValue = deviceCache.get(new CacheKey(clazz, id));
+        if (cacheValue != null) {
+            cacheHits.increment();
+            return cacheValue.getValue();
+        } else {
+            cacheMisses.increment();
+            return null;
         }
     }
 
+    public int getCacheSize() {
+        return deviceCache.size();
+    }
+
+    public int getDeviceCount() {
+        return deviceLinks.size();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
     public <T extends BaseModel> List<T> getDeviceObjects(long deviceId, Class<T> clazz) {
-        try {
-            lock.readLock().lock();
-            var links = deviceLinks.get(deviceId);
-            if (links != null) {
-                return links.getOrDefault(clazz, new LinkedHashSet<>()).stream()
-                        .map(id -> {
-                            var cacheValue = deviceCache.get(new CacheKey(clazz, id));
-                            return cacheValue != null ? cacheValue.<T>getValue() : null;
-                        })
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toList());
-            } else {
-                LOGGER.warn("Device {} cache missing", deviceId);
-                return Collections.emptyList();
-            }
-        } finally {
-            lock.readLock().unlock();
+        var links = deviceLinks.get(deviceId);
+        if (links != null) {
+            return links.getOrDefault(clazz, Collections.emptySet()).stream()
+                    .map(id -> {
+                        var cacheValue = deviceCache.get(new CacheKey(clazz, id));
+                        return cacheValue != null ? cacheValue.<T>getValue() : null;
+                    })
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        } else {
+            LOGGER.warn("Device {} cache missing", deviceId);
+            return Collections.emptyList();
         }
     }
 
     public Position getPosition(long deviceId) {
-        try {
-            lock.readLock().lock();
-            return devicePositions.get(deviceId);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return devicePositions.get(deviceId);
     }
 
     public Server getServer() {
-        try {
-            lock.readLock().lock();
-            return server;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return server;
     }
 
     public List<User> getNotificationUsers(long notificationId, long deviceId) {
-        try {
-            lock.readLock().lock();
-            var users = deviceLinks.get(deviceId).get(User.class).stream()
-                    .collect(Collectors.toUnmodifiableSet());
-            return notificationUsers.getOrDefault(notificationId, new LinkedList<>()).stream()
-                    .filter(user -> users.contains(user.getId()))
-                    .collect(Collectors.toUnmodifiableList());
-        } finally {
-            lock.readLock().unlock();
-        }
+        var links = deviceLinks.get(deviceId);
+        var users = links != null ? links.getOrDefault(User.class, Collections.emptySet()) : Set.<Long>of();
+        return notificationUsers.getOrDefault(notificationId, Collections.emptyList()).stream()
+                .filter(user -> users.contains(user.getId()))
+                .collect(Collectors.toUnmodifiableList());
     }
 
     public Driver findDriverByUniqueId(long deviceId, String driverUniqueId) {
@@ -163,8 +169,7 @@ public class CacheManager implements BroadcastInterface {
     }
 
     public void addDevice(long deviceId) throws StorageException {
-        try {
-            lock.writeLock().lock();
+        synchronized (getDeviceLock(deviceId)) {
             Integer references = deviceReferences.get(deviceId);
             if (references != null) {
                 references += 1;
@@ -173,14 +178,11 @@ public class CacheManager implements BroadcastInterface {
                 references = 1;
             }
             deviceReferences.put(deviceId, references);
-        } finally {
-            lock.writeLock().unlock();
         }
     }
 
     public void removeDevice(long deviceId) {
-        try {
-            lock.writeLock().lock();
+        synchronized (getDeviceLock(deviceId)) {
             Integer references = deviceReferences.get(deviceId);
             if (references != null) {
                 references -= 1;
@@ -191,20 +193,131 @@ public class CacheManager implements BroadcastInterface {
                     deviceReferences.put(deviceId, references);
                 }
             }
-        } finally {
-            lock.writeLock().unlock();
         }
     }
 
-    public void updatePosition(Position position) {
-        try {
-            lock.writeLock().lock();
-            if (deviceLinks.containsKey(position.getDeviceId())) {
-                devicePositions.put(position.getDeviceId(), position);
+    public List<Device> preload() throws StorageException {
+        var devices = storage.getObjects(Device.class, new Request(new Columns.All()));
+        var groups = getObjectMap(Group.class);
+        var calendars = getObjectMap(Calendar.class);
+        var users = getObjectMap(User.class);
+
+        Map<Class<? extends BaseModel>, Map<Long, ? extends BaseModel>> objects = new HashMap<>();
+        Map<Class<? extends BaseModel>, Map<Long, Set<Long>>> devicePermissions = new HashMap<>();
+        Map<Class<? extends BaseModel>, Map<Long, Set<Long>>> groupPermissions = new HashMap<>();
+        for (Class<? extends BaseModel> clazz : CLASSES) {
+            objects.put(clazz, getObjectMap(clazz));
+            devicePermissions.put(clazz, getPermissionMap(storage.getPermissions(Device.class, clazz), true));
+            groupPermissions.put(clazz, getPermissionMap(storage.getPermissions(Group.class, clazz), true));
+        }
+        var userDevices = getPermissionMap(storage.getPermissions(User.class, Device.class), false);
+        var userGroups = getPermissionMap(storage.getPermissions(User.class, Group.class), false);
+        var userNotifications = getPermissionMap(storage.getPermissions(User.class, Notification.class), true);
+
+        Map<Long, Position> positions = new HashMap<>();
+        storage.getObjects(Position.class, new Request(new Columns.All(), new Condition.LatestPositions()))
+                .forEach(position -> positions.put(position.getDeviceId(), position));
+
+        for (Device device : devices) {
+            long deviceId = device.getId();
+            synchronized (getDeviceLock(deviceId)) {
+                if (deviceReferences.containsKey(deviceId)) {
+                    continue;
+                }
+                Map<Class<? extends BaseModel>, Set<Long>> links = new HashMap<>();
+                addObject(deviceId, device);
+
+                List<Long> groupIds = new LinkedList<>();
+                long groupId = device.getGroupId();
+                while (groupIds.size() < GROUP_DEPTH_LIMIT && groups.containsKey(groupId)) {
+                    Group group = groups.get(groupId);
+                    links.computeIfAbsent(Group.class, k -> new LinkedHashSet<>()).add(group.getId());
+                    addObject(deviceId, group);
+                    groupIds.add(groupId);
+                    groupId = group.getGroupId();
+                }
+
+                for (Class<? extends BaseModel> clazz : CLASSES) {
+                    Set<Long> ids = new LinkedHashSet<>(
+                            devicePermissions.get(clazz).getOrDefault(deviceId, Collections.emptySet()));
+                    for (long id : groupIds) {
+                        ids.addAll(groupPermissions.get(clazz).getOrDefault(id, Collections.emptySet()));
+                    }
+                    for (long id : ids) {
+                        BaseModel object = objects.get(clazz).get(id);
+                        if (object != null) {
+                            links.computeIfAbsent(clazz, k -> new LinkedHashSet<>()).add(id);
+                            addObject(deviceId, object);
+                        }
+                    }
+                }
+
+                Set<Long> userIds = new HashSet<>(userDevices.getOrDefault(deviceId, Collections.emptySet()));
+                for (long id : groupIds) {
+                    userIds.addAll(userGroups.getOrDefault(id, Collections.emptySet()));
+                }
+                for (long userId : userIds) {
+                    User user = users.get(userId);
+                    if (user == null) {
+                        continue;
+                    }
+                    links.computeIfAbsent(User.class, k -> new HashSet<>()).add(userId);
+                    addObject(deviceId, user);
+                    for (long notificationId : userNotifications.getOrDefault(userId, Collections.emptySet())) {
+                        var notification = (Notification) objects.get(Notification.class).get(notificationId);
+                        if (notification != null && notification.getAlways()) {
+                            links.computeIfAbsent(Notification.class, k -> new LinkedHashSet<>()).add(notificationId);
+                            addObject(deviceId, notification);
+                        }
+                    }
+                }
+
+                for (var entry : Map.copyOf(links).entrySet()) {
+                    for (long id : entry.getValue()) {
+                        BaseModel object = getObject(entry.getKey(), id);
+                        if (object instanceof ScheduledModel) {
+                            var calendar = calendars.get(((ScheduledModel) object).getCalendarId());
+                            if (calendar != null) {
+                                links.computeIfAbsent(Calendar.class, k -> new LinkedHashSet<>()).add(calendar.getId());
+                                addObject(deviceId, calendar);
+                            }
+                        }
+                    }
+                }
+
+                deviceLinks.put(deviceId, toSnapshot(links));
+                var position = positions.get(deviceId);
+                if (position != null) {
+                    devicePositions.put(deviceId, position);
+                }
+                deviceReferences.put(deviceId, 1);
             }
-        } finally {
-            lock.writeLock().unlock();
         }
+
+        LOGGER.info("Preloaded {} devices", devices.size());
+        return devices;
+    }
+
+    private <T extends BaseModel> Map<Long, T> getObjectMap(Class<T> clazz) throws StorageException {
+        return storage.getObjects(clazz, new Request(new Columns.All())).stream()
+                .collect(Collectors.toMap(BaseModel::getId, object -> object));
+    }
+
+    private static Map<Long, Set<Long>> getPermissionMap(List<Permission> permissions, boolean byOwner) {
+        Map<Long, Set<Long>> result = new HashMap<>();
+        for (Permission permission : permissions) {
+            long key = byOwner ? permission.getOwnerId() : permission.getPropertyId();
+            long value = byOwner ? permission.getPropertyId() : permission.getOwnerId();
+            result.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(value);
+        }
+        return result;
+    }
+
+    public void updatePosition(Position position) {
+        deviceLinks.computeIfPresent(position.getDeviceId(), (deviceId, links) -> {
+            devicePositions.put(deviceId, position);
+            return links;
+        });
     }
 
     @Override
@@ -236,33 +349,41 @@ public class CacheManager implements BroadcastInterface {
             return;
         }
 
-        boolean invalidate = false;
         var before = getObject(object.getClass(), object.getId());
         if (before == null) {
             return;
-        } else if (object instanceof GroupedModel) {
-            if (((GroupedModel) before).getGroupId() != ((GroupedModel) object).getGroupId()) {
-                invalidate = true;
-            }
-        } else if (object instanceof ScheduledModel) {
-            if (((ScheduledModel) before).getCalendarId() != ((ScheduledModel) object).getCalendarId()) {
-                invalidate = true;
-            }
-        }
-        if (invalidate) {
-            invalidate(object.getClass(), object.getId());
+        } else if (object instanceof GroupedModel
+                && ((GroupedModel) before).getGroupId() != ((GroupedModel) object).getGroupId()) {
+            reloadDevices(new CacheKey(object));
+        } else if (object instanceof ScheduledModel
+                && ((ScheduledModel) before).getCalendarId() != ((ScheduledModel) object).getCalendarId()) {
+            refreshLinks(object.getClass(), object.getId());
         } else {
-            try {
-                lock.writeLock().lock();
-                deviceCache.get(new CacheKey(object.getClass(), object.getId())).setValue(object);
-            } finally {
-                lock.writeLock().unlock();
-            }
+            deviceCache.computeIfPresent(new CacheKey(object), (key, value) -> {
+                value.setValue(object);
+                return value;
+            });
         }
     }
 
     public <T extends BaseModel> void invalidate(Class<T> clazz, long id) throws StorageException {
-        invalidate(new CacheKey(clazz, id));
+        if (clazz.equals(Server.class)) {
+            invalidateServer();
+        } else if (clazz.equals(User.class)) {
+            var notificationIds = getUserNotifications(id);
+            invalidateUsers();
+            refreshUserLinks(id);
+            for (long notificationId : notificationIds) {
+                refreshLinks(Notification.class, notificationId);
+            }
+        } else if (CLASSES.contains(clazz)) {
+            if (clazz.equals(Notification.class)) {
+                invalidateUsers();
+            }
+            refreshLinks(clazz, id);
+        } else {
+            reloadDevices(new CacheKey(clazz, id));
+        }
     }
 
     @Override
@@ -275,18 +396,47 @@ public class CacheManager implements BroadcastInterface {
         }
 
         try {
-            invalidate(new CacheKey(clazz1, id1), new CacheKey(clazz2, id2));
+            if (clazz2.equals(User.class)) {
+                invalidatePermission(clazz2, id2, clazz1, id1);
+            } else {
+                invalidatePermission(clazz1, id1, clazz2, id2);
+            }
         } catch (StorageException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private void invalidatePermission(
+            Class<? extends BaseModel> ownerClass, long ownerId,
+            Class<? extends BaseModel> propertyClass, long propertyId) throws StorageException {
+        boolean ownerDevice = ownerClass.equals(Device.class) || ownerClass.equals(Group.class);
+        if (ownerClass.equals(User.class)) {
+            if (propertyClass.equals(Notification.class)) {
+                invalidateUsers();
+                refreshLinks(Notification.class, propertyId);
+            } else if (propertyClass.equals(Device.class) || propertyClass.equals(Group.class)) {
+                refreshUserLinks(ownerId);
+                for (long notificationId : getUserNotifications(ownerId)) {
+                    refreshLinks(Notification.class, notificationId);
+                }
+            }
+        } else if (ownerDevice && CLASSES.contains(propertyClass)) {
+            refreshLinks(propertyClass, propertyId);
+        } else if (ownerDevice || propertyClass.equals(Device.class) || propertyClass.equals(Group.class)) {
+            reloadDevices(new CacheKey(ownerClass, ownerId), new CacheKey(propertyClass, propertyId));
+        }
+    }
+
+    private Object getDeviceLock(long deviceId) {
+        return deviceLocks[(int) Math.floorMod(deviceId, (long) LOCK_STRIPES)];
+    }
+
     private void invalidateServer() throws StorageException {
         server = storage.getObject(Server.class, new Request(new Columns.All()));
     }
 
     private void invalidateUsers() throws StorageException {
-        notificationUsers.clear();
+        Map<Long, List<User>> notificationUsers = new HashMap<>();
         Map<Long, User> users = new HashMap<>();
         storage.getObjects(User.class, new Request(new Columns.All()))
                 .forEach(user -> users.put(user.getId(), user));
@@ -295,15 +445,35 @@ public class CacheManager implements BroadcastInterface {
             var user = users.get(permission.getOwnerId());
             notificationUsers.computeIfAbsent(notificationId, k -> new LinkedList<>()).add(user);
         });
+        this.notificationUsers = notificationUsers;
     }
 
     private void addObject(long deviceId, BaseModel object) {
-        deviceCache.computeIfAbsent(new CacheKey(object), k -> new CacheValue(object)).retain(deviceId);
+        deviceCache.compute(new CacheKey(object), (key, value) -> {
+            if (value == null) {
+                value = new CacheValue(object);
+            } else {
+                value.setValue(object);
+            }
+            value.retain(deviceId);
+            return value;
+        });
+    }
+
+    private void releaseObject(long deviceId, CacheKey key) {
+        deviceCache.computeIfPresent(key, (k, value) -> {
+            value.release(deviceId);
+            return value.getReferences().isEmpty() ? null : value;
+        });
     }
 
     private void unsafeAddDevice(long deviceId) throws StorageException {
         Map<Class<? extends BaseModel>, Set<Long>> links = new HashMap<>();
 
+        CacheLoadEvent event = new CacheLoadEvent();
+        event.begin();
+        int queries = 1;
+
         Device device = storage.getObject(Device.class, new Request(
                 new Columns.All(), new Condition.Equals("id", deviceId)));
         if (device != null) {
@@ -314,6 +484,7 @@ public class CacheManager implements BroadcastInterface {
             while (groupDepth < GROUP_DEPTH_LIMIT && groupId > 0) {
                 Group group = storage.getObject(Group.class, new Request(
                         new Columns.All(), new Condition.Equals("id", groupId)));
+                queries += 1;
                 links.computeIfAbsent(Group.class, k -> new LinkedHashSet<>()).add(group.getId());
                 addObject(deviceId, group);
                 groupId = group.getGroupId();
@@ -323,7 +494,9 @@ public class CacheManager implements BroadcastInterface {
             for (Class<? extends BaseModel> clazz : CLASSES) {
                 var objects = storage.getObjects(clazz, new Request(
                         new Columns.All(), new Condition.Permission(Device.class, deviceId, clazz)));
-                links.put(clazz, objects.stream().map(BaseModel::getId).collect(Collectors.toSet()));
+                queries += 1;
+                links.computeIfAbsent(clazz, k -> new LinkedHashSet<>())
+                        .addAll(objects.stream().map(BaseModel::getId).collect(Collectors.toList()));
                 for (var object : objects) {
                     addObject(deviceId, object);
                     if (object instanceof ScheduledModel) {
@@ -331,7 +504,8 @@ public class CacheManager implements BroadcastInterface {
                         if (scheduled.getCalendarId() > 0) {
                             var calendar = storage.getObject(Calendar.class, new Request(
                                     new Columns.All(), new Condition.Equals("id", scheduled.getCalendarId())));
-                            links.computeIfAbsent(Notification.class, k -> new LinkedHashSet<>())
+                            queries += 1;
+                            links.computeIfAbsent(Calendar.class, k -> new LinkedHashSet<>())
                                     .add(calendar.getId());
                             addObject(deviceId, calendar);
                         }
@@ -341,6 +515,7 @@ public class CacheManager implements BroadcastInterface {
 
             var users = storage.getObjects(User.class, new Request(
                     new Columns.All(), new Condition.Permission(User.class, Device.class, deviceId)));
+            queries += 1;
             links.put(User.class, users.stream().map(BaseModel::getId).collect(Collectors.toSet()));
             for (var user : users) {
                 addObject(deviceId, user);
@@ -349,6 +524,7 @@ public class CacheManager implements BroadcastInterface {
                         new Condition.Permission(User.class, user.getId(), Notification.class))).stream()
                         .filter(Notification::getAlways)
                         .collect(Collectors.toList());
+                queries += 1;
                 for (var notification : notifications) {
                     links.computeIfAbsent(Notification.class, k -> new LinkedHashSet<>())
                             .add(notification.getId());
@@ -356,69 +532,208 @@ public class CacheManager implements BroadcastInterface {
                     if (notification.getCalendarId() > 0) {
                         var calendar = storage.getObject(Calendar.class, new Request(
                                 new Columns.All(), new Condition.Equals("id", notification.getCalendarId())));
-                        links.computeIfAbsent(Notification.class, k -> new LinkedHashSet<>())
+                        queries += 1;
+                        links.computeIfAbsent(Calendar.class, k -> new LinkedHashSet<>())
                                 .add(calendar.getId());
                         addObject(deviceId, calendar);
                     }
                 }
             }
 
-            deviceLinks.put(deviceId, links);
-
+            Position position = null;
             if (device.getPositionId() > 0) {
-                devicePositions.put(deviceId, storage.getObject(Position.class, new Request(
-                        new Columns.All(), new Condition.Equals("id", device.getPositionId()))));
+                position = storage.getObject(Position.class, new Request(
+                        new Columns.All(), new Condition.Equals("id", device.getPositionId())));
+                queries += 1;
             }
+
+            var previousLinks = deviceLinks.put(deviceId, toSnapshot(links));
+            if (position != null) {
+                devicePositions.put(deviceId, position);
+            }
+            if (previousLinks != null) {
+                releaseLinks(deviceId, previousLinks, links);
+            }
+        } else {
+            unsafeRemoveDevice(deviceId);
         }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.setDeviceId(deviceId);
+            event.setQueries(queries);
+            event.setObjects(links.values().stream().mapToInt(Set::size).sum() + (device != null ? 1 : 0));
+            event.commit();
+        }
+    }
+
+    private static Map<Class<? extends BaseModel>, Set<Long>> toSnapshot(
+            Map<Class<? extends BaseModel>, Set<Long>> links) {
+        Map<Class<? extends BaseModel>, Set<Long>> snapshot = new HashMap<>();
+        links.forEach((clazz, ids) -> snapshot.put(clazz, Collections.unmodifiableSet(new LinkedHashSet<>(ids))));
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    private void releaseLinks(
+            long deviceId,
+            Map<Class<? extends BaseModel>, Set<Long>> previousLinks,
+            Map<Class<? extends BaseModel>, Set<Long>> currentLinks) {
+        previousLinks.forEach((clazz, ids) -> {
+            var currentIds = currentLinks.getOrDefault(clazz, Collections.emptySet());
+            ids.stream()
+                    .filter(id -> !currentIds.contains(id))
+                    .forEach(id -> releaseObject(deviceId, new CacheKey(clazz, id)));
+        });
     }
 
     private void unsafeRemoveDevice(long deviceId) {
-        deviceCache.remove(new CacheKey(Device.class, deviceId));
-        deviceLinks.remove(deviceId).forEach((clazz, ids) -> ids.forEach(id -> {
-            var key = new CacheKey(clazz, id);
-            deviceCache.computeIfPresent(key, (k, value) -> {
-                value.release(deviceId);
-                return value.getReferences().size() > 0 ? value : null;
-            });
-        }));
+        var links = deviceLinks.remove(deviceId);
+        if (links != null) {
+            releaseLinks(deviceId, links, Collections.emptyMap());
+        }
+        releaseObject(deviceId, new CacheKey(Device.class, deviceId));
         devicePositions.remove(deviceId);
     }
 
-    private void invalidate(CacheKey... keys) throws StorageException {
-        try {
-            lock.writeLock().lock();
-            unsafeInvalidate(keys);
-        } finally {
-            lock.writeLock().unlock();
+    private Set<Long> getLinkedDevices(CacheKey key) {
+        var value = deviceCache.get(key);
+        return value != null ? value.getReferences() : Collections.emptySet();
+    }
+
+    private Set<Long> getPermittedDevices(Condition.Permission condition) throws StorageException {
+        return storage.getObjects(Device.class, new Request(new Columns.Include("id"), condition)).stream()
+                .map(BaseModel::getId)
+                .filter(deviceReferences::containsKey)
+                .collect(Collectors.toSet());
+    }
+
+    private Set<Long> getUserNotifications(long userId) {
+        return notificationUsers.entrySet().stream()
+                .filter(entry -> entry.getValue().stream().anyMatch(user -> user != null && user.getId() == userId))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    private boolean hasNotificationUser(Map<Class<? extends BaseModel>, Set<Long>> links, Notification notification) {
+        var users = links.getOrDefault(User.class, Collections.emptySet());
+        return notification.getAlways() && notificationUsers.getOrDefault(notification.getId(), List.of()).stream()
+                .anyMatch(user -> user != null && users.contains(user.getId()));
+    }
+
+    private Calendar getCalendar(BaseModel object) throws StorageException {
+        if (object instanceof ScheduledModel) {
+            long calendarId = ((ScheduledModel) object).getCalendarId();
+            if (calendarId > 0) {
+                var calendar = getObject(Calendar.class, calendarId);
+                if (calendar == null) {
+                    calendar = storage.getObject(Calendar.class, new Request(
+                            new Columns.All(), new Condition.Equals("id", calendarId)));
+                }
+                return calendar;
+            }
         }
+        return null;
     }
 
-    private void unsafeInvalidate(CacheKey[] keys) throws StorageException {
-        boolean invalidateServer = false;
-        boolean invalidateUsers = false;
-        Set<Long> linkedDevices = new HashSet<>();
-        for (var key : keys) {
-            if (key.classIs(Server.class)) {
-                invalidateServer = true;
-            } else {
-                if (key.classIs(User.class) || key.classIs(Notification.class)) {
-                    invalidateUsers = true;
+    private void refreshLinks(Class<? extends BaseModel> clazz, long id) throws StorageException {
+        var object = storage.getObject(clazz, new Request(new Columns.All(), new Condition.Equals("id", id)));
+        var calendar = getCalendar(object);
+
+        Set<Long> permittedDevices = Collections.emptySet();
+        Set<Long> devices = new HashSet<>(getLinkedDevices(new CacheKey(clazz, id)));
+        if (object != null) {
+            permittedDevices = getPermittedDevices(new Condition.Permission(Device.class, clazz, id));
+            devices.addAll(permittedDevices);
+            if (object instanceof Notification) {
+                notificationUsers.getOrDefault(id, List.of()).stream()
+                        .filter(Objects::nonNull)
+                        .forEach(user -> devices.addAll(getLinkedDevices(new CacheKey(user))));
+            }
+        }
+
+        for (long deviceId : devices) {
+            synchronized (getDeviceLock(deviceId)) {
+                var links = deviceLinks.get(deviceId);
+                if (links != null) {
+                    boolean linked = object != null && (permittedDevices.contains(deviceId)
+                            || (object instanceof Notification && hasNotificationUser(links, (Notification) object)));
+                    updateLink(deviceId, links, clazz, id, linked ? object : null, calendar);
                 }
-                deviceCache.computeIfPresent(key, (k, value) -> {
-                    linkedDevices.addAll(value.getReferences());
-                    return value;
-                });
             }
         }
-        for (long deviceId : linkedDevices) {
-            unsafeRemoveDevice(deviceId);
-            unsafeAddDevice(deviceId);
+    }
+
+    private void refreshUserLinks(long userId) throws StorageException {
+        var user = storage.getObject(User.class, new Request(
+                new Columns.All(), new Condition.Equals("id", userId)));
+
+        Set<Long> permittedDevices = Collections.emptySet();
+        Set<Long> devices = new HashSet<>(getLinkedDevices(new CacheKey(User.class, userId)));
+        if (user != null) {
+            permittedDevices = getPermittedDevices(new Condition.Permission(User.class, userId, Device.class));
+            devices.addAll(permittedDevices);
         }
-        if (invalidateServer) {
-            invalidateServer();
+
+        for (long deviceId : devices) {
+            synchronized (getDeviceLock(deviceId)) {
+                var links = deviceLinks.get(deviceId);
+                if (links != null) {
+                    var object = permittedDevices.contains(deviceId) ? user : null;
+                    updateLink(deviceId, links, User.class, userId, object, null);
+                }
+            }
         }
-        if (invalidateUsers) {
-            invalidateUsers();
+    }
+
+    private void updateLink(
+            long deviceId, Map<Class<? extends BaseModel>, Set<Long>> links,
+            Class<? extends BaseModel> clazz, long id, BaseModel object, Calendar calendar) {
+        if (object == null && !links.getOrDefault(clazz, Collections.emptySet()).contains(id)) {
+            return;
+        }
+
+        Map<Class<? extends BaseModel>, Set<Long>> updatedLinks = new HashMap<>();
+        links.forEach((k, ids) -> updatedLinks.put(k, new LinkedHashSet<>(ids)));
+        if (object != null) {
+            updatedLinks.computeIfAbsent(clazz, k -> new LinkedHashSet<>()).add(id);
+            addObject(deviceId, object);
+        } else {
+            updatedLinks.get(clazz).remove(id);
+        }
+
+        if (ScheduledModel.class.isAssignableFrom(clazz)) {
+            Set<Long> calendars = new LinkedHashSet<>();
+            updatedLinks.forEach((linkClass, ids) -> {
+                if (ScheduledModel.class.isAssignableFrom(linkClass)) {
+                    for (long linkId : ids) {
+                        ScheduledModel scheduled = getObject(linkClass.asSubclass(ScheduledModel.class), linkId);
+                        if (scheduled != null && scheduled.getCalendarId() > 0) {
+                            calendars.add(scheduled.getCalendarId());
+                        }
+                    }
+                }
+            });
+            if (calendar != null && calendars.contains(calendar.getId())) {
+                addObject(deviceId, calendar);
+            }
+            updatedLinks.put(Calendar.class, calendars);
+        }
+
+        deviceLinks.put(deviceId, toSnapshot(updatedLinks));
+        releaseLinks(deviceId, links, updatedLinks);
+    }
+
+    private void reloadDevices(CacheKey... keys) throws StorageException {
+        Set<Long> linkedDevices = new HashSet<>();
+        for (var key : keys) {
+            linkedDevices.addAll(getLinkedDevices(key));
+        }
+        for (long deviceId : linkedDevices) {
+            synchronized (getDeviceLock(deviceId)) {
+                if (deviceReferences.containsKey(deviceId)) {
+                    unsafeAddDevice(deviceId);
+                }
+            }
         }
     }
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,13 +17,13 @@ package org.traccar.session.cache;
 
 import org.traccar.model.BaseModel;
 
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 class CacheValue {
 
-    private BaseModel value;
-    private final Set<Long> references = new HashSet<>();
+    private volatile BaseModel value;
+    private final Set<Long> references = ConcurrentHashMap.newKeySet();
 
     CacheValue(BaseModel value) {
         this.value = value;
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.session.cache;
+
+import org.traccar.broadcast.BroadcastInterface;
+import org.traccar.broadcast.BroadcastService;
+import org.traccar.model.Position;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Request;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Singleton
+public class LatestPositionCache implements BroadcastInterface {
+
+    private final Storage storage;
+
+    private final Map<Long, Position> positions = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    @Inject
+    public LatestPositionCache(Storage storage, BroadcastService broadcastService) {
+        this.storage = storage;
+        broadcastService.registerListener(this);
+    }
+
+    private static Position selectLatest(Position first, Position second) {
+        return second.getFixTime().compareTo(first.getFixTime()) >= 0 ? second : first;
+    }
+
+    private void load() throws StorageException {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    storage.getObjects(Position.class, new Request(
+                            new Columns.All(), new Condition.LatestPositions()))
+                            .forEach(position -> positions.merge(
+                                    position.getDeviceId(), position, LatestPositionCache::selectLatest));
+                    loaded = true;
+                }
+            }
+        }
+    }
+
+    public void update(Position position) {
+        positions.merge(position.getDeviceId(), position, LatestPositionCache::selectLatest);
+    }
+
+    public void invalidate(long deviceId) throws StorageException {
+        Position position = storage.getObject(Position.class, new Request(
+                new Columns.All(), new Condition.LatestPositions(deviceId)));
+        if (position != null) {
+            positions.put(deviceId, position);
+        } else {
+            positions.remove(deviceId);
+        }
+    }
+
+    public List<Position> getPositions(Collection<Long> deviceIds) throws StorageException {
+        load();
+        return deviceIds.stream()
+                .map(positions::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void updatePosition(boolean local, Position position) {
+        if (!local) {
+            update(position);
+        }
+    }
+
+}
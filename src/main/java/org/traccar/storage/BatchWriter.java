@@ -0,0 +1,160 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.LifecycleObject;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Request;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Singleton
+public class BatchWriter implements LifecycleObject {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchWriter.class);
+
+    private static final long POLL_INTERVAL = 100;
+
+    private final Storage storage;
+    private final int batchSize;
+    private final long batchDelay;
+
+    private final BlockingQueue<PendingObject> queue;
+
+    private Thread thread;
+    private volatile boolean running;
+
+    private static final class PendingObject {
+
+        private final Object entity;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        private PendingObject(Object entity) {
+            this.entity = entity;
+        }
+
+    }
+
+    @Inject
+    public BatchWriter(Config config, Storage storage) {
+        this.storage = storage;
+        batchSize = config.getInteger(Keys.DATABASE_BATCH_SIZE);
+        batchDelay = TimeUnit.MILLISECONDS.toNanos(config.getLong(Keys.DATABASE_BATCH_DELAY));
+        queue = new ArrayBlockingQueue<>(Math.max(1, config.getInteger(Keys.DATABASE_BATCH_QUEUE_SIZE)));
+    }
+
+    @Override
+    public void start() {
+        if (batchSize > 0) {
+            running = true;
+            thread = new Thread(this::run, "batch-writer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        if (thread != null) {
+            running = false;
+            thread.join();
+            thread = null;
+            List<PendingObject> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            if (!remaining.isEmpty()) {
+                write(remaining);
+            }
+        }
+    }
+
+    public CompletableFuture<Long> addObject(Object entity) {
+        if (running) {
+            PendingObject pendingObject = new PendingObject(entity);
+            if (!queue.offer(pendingObject)) {
+                return CompletableFuture.failedFuture(new StorageException("Batch queue is full"));
+            }
+            return pendingObject.future;
+        }
+        try {
+            return CompletableFuture.completedFuture(
+                    storage.addObject(entity, new Request(new Columns.Exclude("id"))));
+        } catch (StorageException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void run() {
+        List<PendingObject> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingObject first = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + batchDelay;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) == 0) {
+                        PendingObject pendingObject = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (pendingObject == null) {
+                            break;
+                        }
+                        batch.add(pendingObject);
+                    }
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                write(batch);
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingObject> batch) {
+        Map<Class<?>, List<PendingObject>> groups = batch.stream().collect(
+                Collectors.groupingBy(pending -> pending.entity.getClass(), LinkedHashMap::new, Collectors.toList()));
+        for (List<PendingObject> group : groups.values()) {
+            try {
+                List<Object> entities = group.stream().map(pending -> pending.entity).collect(Collectors.toList());
+                List<Long> ids = storage.addObjects(entities, new Request(new Columns.Exclude("id")));
+                for (int i = 0; i < group.size(); i++) {
+                    group.get(i).future.complete(ids.get(i));
+                }
+            } catch (StorageException | RuntimeException e) {
+                LOGGER.warn("Batch write error", e);
+                group.forEach(pending -> pending.future.completeExceptionally(e));
+            }
+        }
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,8 @@ import liquibase.resource.DirectoryResourceAccessor;
 import liquibase.resource.ResourceAccessor;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
+import org.traccar.metrics.HikariMetricsTrackerFactory;
+import org.traccar.metrics.MetricsRegistry;
 
 import javax.inject.Singleton;
 import javax.sql.DataSource;
@@ -41,7 +43,8 @@ public class DatabaseModule extends AbstractModule {
     @Singleton
     @Provides
     public static DataSource provideDataSource(
-            Config config) throws ReflectiveOperationException, IOException, LiquibaseException {
+            Config config, MetricsRegistry metricsRegistry)
+            throws ReflectiveOperationException, IOException, LiquibaseException {
 
         String driverFile = config.getString(Keys.DATABASE_DRIVER_FILE);
         if (driverFile != null) {
@@ -71,11 +74,20 @@ public class DatabaseModule extends AbstractModule {
         hikariConfig.setConnectionInitSql(config.getString(Keys.DATABASE_CHECK_CONNECTION));
         hikariConfig.setIdleTimeout(600000);
 
+        String url = config.getString(Keys.DATABASE_URL);
+        if (url != null && (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:"))) {
+            hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
+            hikariConfig.addDataSourceProperty("prepStmtCacheSize", "250");
+            hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        }
+
         int maxPoolSize = config.getInteger(Keys.DATABASE_MAX_POOL_SIZE);
         if (maxPoolSize != 0) {
             hikariConfig.setMaximumPoolSize(maxPoolSize);
         }
 
+        hikariConfig.setMetricsTrackerFactory(new HikariMetricsTrackerFactory(metricsRegistry));
+
         DataSource dataSource = new HikariDataSource(hikariConfig);
 
         if (config.hasKey(Keys.DATABASE_CHANGELOG)) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -34,16 +34,26 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class DatabaseStorage extends Storage {
 
+    private static final int TEMPLATE_CACHE_SIZE = 1000;
+
     private final Config config;
     private final DataSource dataSource;
     private final ObjectMapper objectMapper;
     private final String databaseType;
 
+    private final Map<String, QueryTemplate> templates = new ConcurrentHashMap<>();
+    private final Map<Class<?>, String> storageNames = new ConcurrentHashMap<>();
+
+    private interface QueryFormatter {
+        String format() throws StorageException;
+    }
+
     @Inject
     public DatabaseStorage(Config config, DataSource dataSource, ObjectMapper objectMapper) {
         this.config = config;
@@ -59,17 +69,26 @@ public class DatabaseStorage extends Storage {
 
     @Override
     public <T> List<T> getObjects(Class<T> clazz, Request request) throws StorageException {
-        StringBuilder query = new StringBuilder("SELECT ");
-        if (request.getColumns() instanceof Columns.All) {
-            query.append('*');
-        } else {
-            query.append(formatColumns(request.getColumns().getColumns(clazz, "set"), c -> c));
-        }
-        query.append(" FROM ").append(getStorageName(clazz));
-        query.append(formatCondition(request.getCondition()));
-        query.append(formatOrder(request.getOrder()));
+        List<String> columns = request.getColumns() instanceof Columns.All
+                ? null : request.getColumns().getColumns(clazz, "set");
+        StringBuilder key = new StringBuilder("SELECT ").append(clazz.getName());
+        appendColumnsKey(key, columns);
+        appendConditionKey(key, request.getCondition());
+        appendOrderKey(key, request.getOrder());
+        QueryTemplate template = getTemplate(key.toString(), () -> {
+            StringBuilder query = new StringBuilder("SELECT ");
+            if (columns == null) {
+                query.append('*');
+            } else {
+                query.append(formatColumns(columns, c -> c));
+            }
+            query.append(" FROM ").append(getStorageName(clazz));
+            query.append(formatCondition(request.getCondition()));
+            query.append(formatOrder(request.getOrder()));
+            return query.toString();
+        });
         try {
-            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString());
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, template, false);
             for (Map.Entry<String, Object> variable : getConditionVariables(request.getCondition()).entrySet()) {
                 builder.setValue(variable.getKey(), variable.getValue());
             }
@@ -82,15 +101,9 @@ public class DatabaseStorage extends Storage {
     @Override
     public <T> long addObject(T entity, Request request) throws StorageException {
         List<String> columns = request.getColumns().getColumns(entity.getClass(), "get");
-        StringBuilder query = new StringBuilder("INSERT INTO ");
-        query.append(getStorageName(entity.getClass()));
-        query.append("(");
-        query.append(formatColumns(columns, c -> c));
-        query.append(") VALUES (");
-        query.append(formatColumns(columns, c -> ':' + c));
-        query.append(")");
+        QueryTemplate template = getInsertTemplate(entity.getClass(), columns);
         try {
-            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString(), true);
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, template, true);
             builder.setObject(entity, columns);
             return builder.executeUpdate();
         } catch (SQLException e) {
@@ -98,16 +111,57 @@ public class DatabaseStorage extends Storage {
         }
     }
 
+    @Override
+    public <T> List<Long> addObjects(List<T> entities, Request request) throws StorageException {
+        if (entities.isEmpty() || databaseType.equals("Microsoft SQL Server")) {
+            return super.addObjects(entities, request); // no generated keys for batches
+        }
+        Class<?> clazz = entities.get(0).getClass();
+        List<String> columns = request.getColumns().getColumns(clazz, "get");
+        QueryTemplate template = getInsertTemplate(clazz, columns);
+        try {
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, template, true);
+            for (T entity : entities) {
+                builder.setObject(entity, columns);
+                builder.addBatch();
+            }
+            return builder.executeBatch();
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    private QueryTemplate getInsertTemplate(Class<?> clazz, List<String> columns) throws StorageException {
+        StringBuilder key = new StringBuilder("INSERT ").append(clazz.getName());
+        appendColumnsKey(key, columns);
+        return getTemplate(key.toString(), () -> {
+            StringBuilder query = new StringBuilder("INSERT INTO ");
+            query.append(getStorageName(clazz));
+            query.append("(");
+            query.append(formatColumns(columns, c -> c));
+            query.append(") VALUES (");
+            query.append(formatColumns(columns, c -> ':' + c));
+            query.append(")");
+            return query.toString();
+        });
+    }
+
     @Override
     public <T> void updateObject(T entity, Request request) throws StorageException {
         List<String> columns = request.getColumns().getColumns(entity.getClass(), "get");
-        StringBuilder query = new StringBuilder("UPDATE ");
-        query.append(getStorageName(entity.getClass()));
-        query.append(" SET ");
-        query.append(formatColumns(columns, c -> c + " = :" + c));
-        query.append(formatCondition(request.getCondition()));
+        StringBuilder key = new StringBuilder("UPDATE ").append(entity.getClass().getName());
+        appendColumnsKey(key, columns);
+        appendConditionKey(key, request.getCondition());
+        QueryTemplate template = getTemplate(key.toString(), () -> {
+            StringBuilder query = new StringBuilder("UPDATE ");
+            query.append(getStorageName(entity.getClass()));
+            query.append(" SET ");
+            query.append(formatColumns(columns, c -> c + " = :" + c));
+            query.append(formatCondition(request.getCondition()));
+            return query.toString();
+        });
         try {
-            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString());
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, template, false);
             builder.setObject(entity, columns);
             for (Map.Entry<String, Object> variable : getConditionVariables(request.getCondition()).entrySet()) {
                 builder.setValue(variable.getKey(), variable.getValue());
@@ -118,13 +172,49 @@ public class DatabaseStorage extends Storage {
         }
     }
 
+    @Override
+    public <T extends BaseModel> void updateObjects(List<T> entities, Columns columns) throws StorageException {
+        if (entities.isEmpty()) {
+            return;
+        }
+        Class<?> clazz = entities.get(0).getClass();
+        List<String> columnList = columns.getColumns(clazz, "get");
+        StringBuilder key = new StringBuilder("UPDATE ").append(clazz.getName());
+        appendColumnsKey(key, columnList);
+        key.append(" ID");
+        QueryTemplate template = getTemplate(key.toString(), () -> {
+            StringBuilder query = new StringBuilder("UPDATE ");
+            query.append(getStorageName(clazz));
+            query.append(" SET ");
+            query.append(formatColumns(columnList, c -> c + " = :" + c));
+            query.append(" WHERE id = :id");
+            return query.toString();
+        });
+        try {
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, template, false);
+            for (T entity : entities) {
+                builder.setObject(entity, columnList);
+                builder.setLong("id", entity.getId());
+                builder.addBatch();
+            }
+            builder.executeBatch();
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
     @Override
     public void removeObject(Class<?> clazz, Request request) throws StorageException {
-        StringBuilder query = new StringBuilder("DELETE FROM ");
-        query.append(getStorageName(clazz));
-        query.append(formatCondition(request.getCondition()));
+        StringBuilder key = new StringBuilder("DELETE ").append(clazz.getName());
+        appendConditionKey(key, request.getCondition());
+        QueryTemplate template = getTemplate(key.toString(), () -> {
+            StringBuilder query = new StringBuilder("DELETE FROM ");
+            query.append(getStorageName(clazz));
+            query.append(formatCondition(request.getCondition()));
+            return query.toString();
+        });
         try {
-            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString());
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, template, false);
             for (Map.Entry<String, Object> variable : getConditionVariables(request.getCondition()).entrySet()) {
                 builder.setValue(variable.getKey(), variable.getValue());
             }
@@ -138,8 +228,6 @@ public class DatabaseStorage extends Storage {
     public List<Permission> getPermissions(
             Class<? extends BaseModel> ownerClass, long ownerId,
             Class<? extends BaseModel> propertyClass, long propertyId) throws StorageException {
-        StringBuilder query = new StringBuilder("SELECT * FROM ");
-        query.append(Permission.getStorageName(ownerClass, propertyClass));
         var conditions = new LinkedList<Condition>();
         if (ownerId > 0) {
             conditions.add(new Condition.Equals(Permission.getKey(ownerClass), ownerId));
@@ -148,9 +236,17 @@ public class DatabaseStorage extends Storage {
             conditions.add(new Condition.Equals(Permission.getKey(propertyClass), propertyId));
         }
         Condition combinedCondition = Condition.merge(conditions);
-        query.append(formatCondition(combinedCondition));
+        StringBuilder key = new StringBuilder("PERMISSIONS ")
+                .append(ownerClass.getName()).append(' ').append(propertyClass.getName());
+        appendConditionKey(key, combinedCondition);
+        QueryTemplate template = getTemplate(key.toString(), () -> {
+            StringBuilder query = new StringBuilder("SELECT * FROM ");
+            query.append(Permission.getStorageName(ownerClass, propertyClass));
+            query.append(formatCondition(combinedCondition));
+            return query.toString();
+        });
         try {
-            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString());
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, template, false);
             for (Map.Entry<String, Object> variable : getConditionVariables(combinedCondition).entrySet()) {
                 builder.setValue(variable.getKey(), variable.getValue());
             }
@@ -196,12 +292,76 @@ public class DatabaseStorage extends Storage {
         }
     }
 
+    private QueryTemplate getTemplate(String key, QueryFormatter formatter) throws StorageException {
+        QueryTemplate template = templates.get(key);
+        if (template == null) {
+            template = QueryTemplate.parse(formatter.format());
+            if (templates.size() < TEMPLATE_CACHE_SIZE) {
+                templates.put(key, template);
+            }
+        }
+        return template;
+    }
+
     private String getStorageName(Class<?> clazz) throws StorageException {
-        StorageName storageName = clazz.getAnnotation(StorageName.class);
-        if (storageName == null) {
-            throw new StorageException("StorageName annotation is missing");
+        String name = storageNames.get(clazz);
+        if (name == null) {
+            StorageName storageName = clazz.getAnnotation(StorageName.class);
+            if (storageName == null) {
+                throw new StorageException("StorageName annotation is missing");
+            }
+            name = storageName.value();
+            storageNames.put(clazz, name);
+        }
+        return name;
+    }
+
+    private void appendColumnsKey(StringBuilder key, List<String> columns) {
+        key.append(" [");
+        if (columns == null) {
+            key.append('*');
+        } else {
+            for (String column : columns) {
+                key.append(column).append(',');
+            }
+        }
+        key.append(']');
+    }
+
+    private void appendConditionKey(StringBuilder key, Condition genericCondition) {
+        if (genericCondition instanceof Condition.Compare) {
+            var condition = (Condition.Compare) genericCondition;
+            key.append(" (").append(condition.getColumn()).append(' ').append(condition.getOperator())
+                    .append(" :").append(condition.getVariable()).append(')');
+        } else if (genericCondition instanceof Condition.Between) {
+            var condition = (Condition.Between) genericCondition;
+            key.append(" (").append(condition.getColumn()).append(" BETWEEN :").append(condition.getFromVariable())
+                    .append(" :").append(condition.getToVariable()).append(')');
+        } else if (genericCondition instanceof Condition.Binary) {
+            var condition = (Condition.Binary) genericCondition;
+            key.append(" (");
+            appendConditionKey(key, condition.getFirst());
+            key.append(' ').append(condition.getOperator());
+            appendConditionKey(key, condition.getSecond());
+            key.append(')');
+        } else if (genericCondition instanceof Condition.Permission) {
+            var condition = (Condition.Permission) genericCondition;
+            key.append(" (PERMISSION ").append(condition.getOwnerClass().getName())
+                    .append(' ').append(condition.getPropertyClass().getName())
+                    .append(' ').append(condition.getOwnerId() > 0)
+                    .append(' ').append(condition.getIncludeGroups()).append(')');
+        } else if (genericCondition instanceof Condition.LatestPositions) {
+            var condition = (Condition.LatestPositions) genericCondition;
+            key.append(" (LATEST ").append(condition.getDeviceId() > 0).append(')');
+        }
+    }
+
+    private void appendOrderKey(StringBuilder key, Order order) {
+        if (order != null) {
+            key.append(" ORDER ").append(order.getColumn())
+                    .append(' ').append(order.getDescending())
+                    .append(' ').append(order.getLimit());
         }
-        return storageName.value();
     }
 
     private Map<String, Object> getConditionVariables(Condition genericCondition) {
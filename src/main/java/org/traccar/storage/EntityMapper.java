@@ -0,0 +1,296 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.beans.Introspector;
+import java.io.IOException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Property accessors of an entity class, generated once with LambdaMetafactory instead of reflective calls.
+ */
+final class EntityMapper<T> {
+
+    private static final ClassValue<EntityMapper<?>> MAPPERS = new ClassValue<>() {
+        @Override
+        protected EntityMapper<?> computeValue(Class<?> type) {
+            return new EntityMapper<>(type);
+        }
+    };
+
+    interface ColumnReader {
+        void read(Object object, ResultSet resultSet, int index, ObjectMapper objectMapper)
+                throws SQLException, IOException;
+    }
+
+    interface ColumnWriter {
+        void write(Object object, PreparedStatement statement, int index, ObjectMapper objectMapper)
+                throws SQLException, IOException;
+    }
+
+    interface BooleanSetter {
+        void set(Object object, boolean value);
+    }
+
+    interface IntSetter {
+        void set(Object object, int value);
+    }
+
+    interface LongSetter {
+        void set(Object object, long value);
+    }
+
+    interface DoubleSetter {
+        void set(Object object, double value);
+    }
+
+    interface ObjectSetter {
+        void set(Object object, Object value);
+    }
+
+    interface BooleanGetter {
+        boolean get(Object object);
+    }
+
+    interface IntGetter {
+        int get(Object object);
+    }
+
+    interface LongGetter {
+        long get(Object object);
+    }
+
+    interface DoubleGetter {
+        double get(Object object);
+    }
+
+    interface ObjectGetter {
+        Object get(Object object);
+    }
+
+    private final Supplier<T> factory;
+    private final Map<String, ColumnReader> readers;
+    private final Map<String, ColumnWriter> writers;
+
+    @SuppressWarnings("unchecked")
+    public static <T> EntityMapper<T> of(Class<T> clazz) {
+        return (EntityMapper<T>) MAPPERS.get(clazz);
+    }
+
+    private EntityMapper(Class<T> clazz) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        factory = createFactory(lookup, clazz);
+
+        Map<String, ColumnReader> readers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        Map<String, ColumnWriter> writers = new HashMap<>();
+        for (Method method : clazz.getMethods()) {
+            if (method.isBridge() || method.getName().length() <= 3) {
+                continue;
+            }
+            String name = method.getName().substring(3);
+            if (method.getName().startsWith("set") && method.getParameterCount() == 1) {
+                readers.putIfAbsent(name, createReader(lookup, clazz, method));
+            } else if (method.getName().startsWith("get") && method.getParameterCount() == 0
+                    && !method.getName().equals("getClass")) {
+                String column = Introspector.decapitalize(name);
+                writers.put(column, createWriter(lookup, clazz, method, column));
+            }
+        }
+        this.readers = Collections.unmodifiableMap(readers);
+        this.writers = Collections.unmodifiableMap(writers);
+    }
+
+    public T newInstance() {
+        return factory.get();
+    }
+
+    /**
+     * Reader for the result column with the given label, matched to setters ignoring case.
+     */
+    public ColumnReader getReader(String label) {
+        return readers.get(label);
+    }
+
+    /**
+     * Writer for the given column name, as listed by {@link org.traccar.storage.query.Columns}.
+     */
+    public ColumnWriter getWriter(String column) {
+        return writers.get(column);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> createFactory(MethodHandles.Lookup lookup, Class<T> clazz) {
+        try {
+            MethodHandle constructor = lookup.findConstructor(clazz, MethodType.methodType(void.class));
+            return (Supplier<T>) LambdaMetafactory.metafactory(
+                    lookup, "get", MethodType.methodType(Supplier.class),
+                    MethodType.methodType(Object.class), constructor, MethodType.methodType(clazz))
+                    .getTarget().invoke();
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return () -> {
+                throw new IllegalArgumentException("No public constructor for " + clazz.getName(), e);
+            };
+        } catch (Throwable e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static Object createAccessor(
+            MethodHandles.Lookup lookup, Class<?> clazz, Method method, Class<?> accessorClass, MethodType type) {
+        try {
+            MethodHandle handle = lookup.unreflect(method);
+            MethodType instantiatedType = type.changeParameterType(0, clazz);
+            if (type.parameterCount() > 1) {
+                instantiatedType = instantiatedType.changeParameterType(1, method.getParameterTypes()[0]);
+            } else {
+                instantiatedType = instantiatedType.changeReturnType(method.getReturnType());
+            }
+            return LambdaMetafactory.metafactory(
+                    lookup, type.parameterCount() > 1 ? "set" : "get", MethodType.methodType(accessorClass),
+                    type, handle, instantiatedType)
+                    .getTarget().invoke();
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("Accessor generation failed for " + method, e);
+        }
+    }
+
+    private static ColumnReader createReader(MethodHandles.Lookup lookup, Class<?> clazz, Method method) {
+        Class<?> type = method.getParameterTypes()[0];
+        if (type.equals(boolean.class)) {
+            var setter = (BooleanSetter) createAccessor(lookup, clazz, method, BooleanSetter.class,
+                    MethodType.methodType(void.class, Object.class, boolean.class));
+            return (object, resultSet, index, objectMapper) -> setter.set(object, resultSet.getBoolean(index));
+        } else if (type.equals(int.class)) {
+            var setter = (IntSetter) createAccessor(lookup, clazz, method, IntSetter.class,
+                    MethodType.methodType(void.class, Object.class, int.class));
+            return (object, resultSet, index, objectMapper) -> setter.set(object, resultSet.getInt(index));
+        } else if (type.equals(long.class)) {
+            var setter = (LongSetter) createAccessor(lookup, clazz, method, LongSetter.class,
+                    MethodType.methodType(void.class, Object.class, long.class));
+            return (object, resultSet, index, objectMapper) -> setter.set(object, resultSet.getLong(index));
+        } else if (type.equals(double.class)) {
+            var setter = (DoubleSetter) createAccessor(lookup, clazz, method, DoubleSetter.class,
+                    MethodType.methodType(void.class, Object.class, double.class));
+            return (object, resultSet, index, objectMapper) -> setter.set(object, resultSet.getDouble(index));
+        }
+
+        var setter = (ObjectSetter) createAccessor(lookup, clazz, method, ObjectSetter.class,
+                MethodType.methodType(void.class, Object.class, Object.class));
+        if (type.equals(String.class)) {
+            return (object, resultSet, index, objectMapper) -> setter.set(object, resultSet.getString(index));
+        } else if (type.equals(Date.class)) {
+            return (object, resultSet, index, objectMapper) -> {
+                Timestamp timestamp = resultSet.getTimestamp(index);
+                if (timestamp != null) {
+                    setter.set(object, new Date(timestamp.getTime()));
+                }
+            };
+        } else if (type.equals(byte[].class)) {
+            return (object, resultSet, index, objectMapper) -> setter.set(object, resultSet.getBytes(index));
+        } else {
+            return (object, resultSet, index, objectMapper) -> {
+                String value = resultSet.getString(index);
+                if (value != null && !value.isEmpty()) {
+                    setter.set(object, objectMapper.readValue(value, type));
+                }
+            };
+        }
+    }
+
+    private static ColumnWriter createWriter(
+            MethodHandles.Lookup lookup, Class<?> clazz, Method method, String column) {
+        Class<?> type = method.getReturnType();
+        if (type.equals(boolean.class)) {
+            var getter = (BooleanGetter) createAccessor(lookup, clazz, method, BooleanGetter.class,
+                    MethodType.methodType(boolean.class, Object.class));
+            return (object, statement, index, objectMapper) -> statement.setBoolean(index, getter.get(object));
+        } else if (type.equals(int.class)) {
+            var getter = (IntGetter) createAccessor(lookup, clazz, method, IntGetter.class,
+                    MethodType.methodType(int.class, Object.class));
+            return (object, statement, index, objectMapper) -> statement.setInt(index, getter.get(object));
+        } else if (type.equals(long.class)) {
+            var getter = (LongGetter) createAccessor(lookup, clazz, method, LongGetter.class,
+                    MethodType.methodType(long.class, Object.class));
+            if (column.endsWith("Id")) {
+                return (object, statement, index, objectMapper) -> {
+                    long value = getter.get(object);
+                    if (value == 0) {
+                        statement.setNull(index, Types.INTEGER);
+                    } else {
+                        statement.setLong(index, value);
+                    }
+                };
+            }
+            return (object, statement, index, objectMapper) -> statement.setLong(index, getter.get(object));
+        } else if (type.equals(double.class)) {
+            var getter = (DoubleGetter) createAccessor(lookup, clazz, method, DoubleGetter.class,
+                    MethodType.methodType(double.class, Object.class));
+            return (object, statement, index, objectMapper) -> statement.setDouble(index, getter.get(object));
+        }
+
+        var getter = (ObjectGetter) createAccessor(lookup, clazz, method, ObjectGetter.class,
+                MethodType.methodType(Object.class, Object.class));
+        if (type.equals(String.class)) {
+            return (object, statement, index, objectMapper) -> {
+                Object value = getter.get(object);
+                if (value == null) {
+                    statement.setNull(index, Types.VARCHAR);
+                } else {
+                    statement.setString(index, (String) value);
+                }
+            };
+        } else if (type.equals(Date.class)) {
+            return (object, statement, index, objectMapper) -> {
+                Date value = (Date) getter.get(object);
+                if (value == null) {
+                    statement.setNull(index, Types.TIMESTAMP);
+                } else {
+                    statement.setTimestamp(index, new Timestamp(value.getTime()));
+                }
+            };
+        } else if (type.equals(byte[].class)) {
+            return (object, statement, index, objectMapper) -> {
+                byte[] value = (byte[]) getter.get(object);
+                if (value == null) {
+                    statement.setNull(index, Types.BLOB);
+                } else {
+                    statement.setBytes(index, value);
+                }
+            };
+        } else {
+            return (object, statement, index, objectMapper) ->
+                    statement.setString(index, objectMapper.writeValueAsString(getter.get(object)));
+        }
+    }
+
+}
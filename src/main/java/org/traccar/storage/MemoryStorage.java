@@ -20,11 +20,13 @@ import org.traccar.model.Pair;
 import org.traccar.model.Permission;
 import org.traccar.model.Server;
 import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Order;
 import org.traccar.storage.query.Request;
 
 import java.beans.Introspector;
 import java.lang.reflect.Method;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -32,6 +34,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class MemoryStorage extends Storage {
 
@@ -49,10 +52,18 @@ public class MemoryStorage extends Storage {
 
     @Override
     public <T> List<T> getObjects(Class<T> clazz, Request request) {
-        return objects.computeIfAbsent(clazz, key -> new HashMap<>()).values().stream()
-                .filter(object -> checkCondition(request.getCondition(), object))
-                .map(object -> (T) object)
-                .collect(Collectors.toList());
+        Stream<Object> stream = objects.computeIfAbsent(clazz, key -> new HashMap<>()).values().stream()
+                .filter(object -> checkCondition(request.getCondition(), object));
+        Order order = request.getOrder();
+        if (order != null) {
+            Comparator<Object> comparator = Comparator.comparing(
+                    object -> (Comparable) retrieveValue(object, order.getColumn()));
+            stream = stream.sorted(order.getDescending() ? comparator.reversed() : comparator);
+            if (order.getLimit() > 0) {
+                stream = stream.limit(order.getLimit());
+            }
+        }
+        return stream.map(object -> (T) object).collect(Collectors.toList());
     }
 
     private boolean checkCondition(Condition genericCondition, Object object) {
@@ -133,6 +144,9 @@ public class MemoryStorage extends Storage {
     @Override
     public <T> long addObject(T entity, Request request) {
         long id = increment.incrementAndGet();
+        if (entity instanceof BaseModel) {
+            ((BaseModel) entity).setId(id);
+        }
         objects.computeIfAbsent(entity.getClass(), key -> new HashMap<>()).put(id, entity);
         return id;
     }
@@ -165,8 +179,8 @@ public class MemoryStorage extends Storage {
 
     @Override
     public void removeObject(Class<?> clazz, Request request) {
-        long id = (Long) ((Condition.Equals) request.getCondition()).getValue();
-        objects.computeIfAbsent(clazz, key -> new HashMap<>()).remove(id);
+        objects.computeIfAbsent(clazz, key -> new HashMap<>()).values()
+                .removeIf(object -> checkCondition(request.getCondition(), object));
     }
 
     private Set<Pair<Long, Long>> getPermissionsSet(Class<?> ownerClass, Class<?> propertyClass) {
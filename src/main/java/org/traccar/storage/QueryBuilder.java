@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2015 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,18 +15,16 @@
  */
 package org.traccar.storage;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
+import org.traccar.metrics.QueryEvent;
 import org.traccar.model.Permission;
 
 import javax.sql.DataSource;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -35,12 +33,11 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 @SuppressWarnings("UnusedReturnValue")
 public final class QueryBuilder {
@@ -50,27 +47,34 @@ public final class QueryBuilder {
     private final Config config;
     private final ObjectMapper objectMapper;
 
-    private final Map<String, List<Integer>> indexMap = new HashMap<>();
+    private final QueryTemplate template;
     private Connection connection;
     private PreparedStatement statement;
     private final String query;
     private final boolean returnGeneratedKeys;
+    private int batchCount;
+
+    private List<String> boundColumns;
+    private Class<?> boundClass;
+    private EntityMapper.ColumnWriter[] boundWriters;
+    private int[][] boundIndexes;
 
     private QueryBuilder(
             Config config, DataSource dataSource, ObjectMapper objectMapper,
-            String query, boolean returnGeneratedKeys) throws SQLException {
+            QueryTemplate template, boolean returnGeneratedKeys) throws SQLException {
         this.config = config;
         this.objectMapper = objectMapper;
-        this.query = query;
+        this.template = template;
+        this.query = template != null ? template.getQuery() : null;
         this.returnGeneratedKeys = returnGeneratedKeys;
-        if (query != null) {
+        if (template != null) {
             connection = dataSource.getConnection();
-            String parsedQuery = parse(query.trim(), indexMap);
             try {
                 if (returnGeneratedKeys) {
-                    statement = connection.prepareStatement(parsedQuery, Statement.RETURN_GENERATED_KEYS);
+                    statement = connection.prepareStatement(
+                            template.getParsedQuery(), Statement.RETURN_GENERATED_KEYS);
                 } else {
-                    statement = connection.prepareStatement(parsedQuery);
+                    statement = connection.prepareStatement(template.getParsedQuery());
                 }
             } catch (SQLException error) {
                 connection.close();
@@ -79,80 +83,27 @@ public final class QueryBuilder {
         }
     }
 
-    private static String parse(String query, Map<String, List<Integer>> paramMap) {
-
-        int length = query.length();
-        StringBuilder parsedQuery = new StringBuilder(length);
-        boolean inSingleQuote = false;
-        boolean inDoubleQuote = false;
-        int index = 1;
-
-        for (int i = 0; i < length; i++) {
-
-            char c = query.charAt(i);
-
-            // String end
-            if (inSingleQuote) {
-                if (c == '\'') {
-                    inSingleQuote = false;
-                }
-            } else if (inDoubleQuote) {
-                if (c == '"') {
-                    inDoubleQuote = false;
-                }
-            } else {
-
-                // String begin
-                if (c == '\'') {
-                    inSingleQuote = true;
-                } else if (c == '"') {
-                    inDoubleQuote = true;
-                } else if (c == ':' && i + 1 < length
-                        && Character.isJavaIdentifierStart(query.charAt(i + 1))) {
-
-                    // Identifier name
-                    int j = i + 2;
-                    while (j < length && Character.isJavaIdentifierPart(query.charAt(j))) {
-                        j++;
-                    }
-
-                    String name = query.substring(i + 1, j);
-                    c = '?';
-                    i += name.length();
-                    name = name.toLowerCase();
-
-                    // Add to list
-                    List<Integer> indexList = paramMap.computeIfAbsent(name, k -> new LinkedList<>());
-                    indexList.add(index);
-
-                    index++;
-                }
-            }
-
-            parsedQuery.append(c);
-        }
-
-        return parsedQuery.toString();
-    }
-
     public static QueryBuilder create(
             Config config, DataSource dataSource, ObjectMapper objectMapper, String query) throws SQLException {
-        return new QueryBuilder(config, dataSource, objectMapper, query, false);
+        return create(config, dataSource, objectMapper, query, false);
     }
 
     public static QueryBuilder create(
             Config config, DataSource dataSource, ObjectMapper objectMapper, String query,
             boolean returnGeneratedKeys) throws SQLException {
-        return new QueryBuilder(config, dataSource, objectMapper, query, returnGeneratedKeys);
+        return new QueryBuilder(
+                config, dataSource, objectMapper,
+                query != null ? QueryTemplate.parse(query.trim()) : null, returnGeneratedKeys);
     }
 
-    private List<Integer> indexes(String name) {
-        name = name.toLowerCase();
-        List<Integer> result = indexMap.get(name);
-        if (result == null) {
-            result = new LinkedList<>();
-        }
-        return result;
+    static QueryBuilder create(
+            Config config, DataSource dataSource, ObjectMapper objectMapper, QueryTemplate template,
+            boolean returnGeneratedKeys) throws SQLException {
+        return new QueryBuilder(config, dataSource, objectMapper, template, returnGeneratedKeys);
+    }
+
+    private int[] indexes(String name) {
+        return template.getIndexes(name);
     }
 
     public QueryBuilder setBoolean(String name, boolean value) throws SQLException {
@@ -285,114 +236,41 @@ public final class QueryBuilder {
 
     public QueryBuilder setObject(Object object, List<String> columns) throws SQLException {
 
-        try {
+        if (columns != boundColumns || object.getClass() != boundClass) {
+            EntityMapper<?> mapper = EntityMapper.of(object.getClass());
+            boundWriters = new EntityMapper.ColumnWriter[columns.size()];
+            boundIndexes = new int[columns.size()][];
+            int i = 0;
             for (String column : columns) {
-                Method method = object.getClass().getMethod(
-                        "get" + Character.toUpperCase(column.charAt(0)) + column.substring(1));
-                if (method.getReturnType().equals(boolean.class)) {
-                    setBoolean(column, (Boolean) method.invoke(object));
-                } else if (method.getReturnType().equals(int.class)) {
-                    setInteger(column, (Integer) method.invoke(object));
-                } else if (method.getReturnType().equals(long.class)) {
-                    setLong(column, (Long) method.invoke(object), column.endsWith("Id"));
-                } else if (method.getReturnType().equals(double.class)) {
-                    setDouble(column, (Double) method.invoke(object));
-                } else if (method.getReturnType().equals(String.class)) {
-                    setString(column, (String) method.invoke(object));
-                } else if (method.getReturnType().equals(Date.class)) {
-                    setDate(column, (Date) method.invoke(object));
-                } else if (method.getReturnType().equals(byte[].class)) {
-                    setBlob(column, (byte[]) method.invoke(object));
-                } else {
-                    setString(column, objectMapper.writeValueAsString(method.invoke(object)));
+                boundWriters[i] = mapper.getWriter(column);
+                boundIndexes[i] = indexes(column);
+                if (boundWriters[i] == null) {
+                    LOGGER.warn("Set object error", new NoSuchMethodException(column));
                 }
+                i += 1;
             }
-        } catch (ReflectiveOperationException | JsonProcessingException e) {
-            LOGGER.warn("Set object error", e);
+            boundColumns = columns;
+            boundClass = object.getClass();
         }
 
-        return this;
-    }
-
-    private interface ResultSetProcessor<T> {
-        void process(T object, ResultSet resultSet) throws SQLException;
-    }
-
-    private <T> void addProcessors(
-            List<ResultSetProcessor<T>> processors,
-            final Class<?> parameterType, final Method method, final String name) {
-
-        if (parameterType.equals(boolean.class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    method.invoke(object, resultSet.getBoolean(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
-        } else if (parameterType.equals(int.class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    method.invoke(object, resultSet.getInt(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
-        } else if (parameterType.equals(long.class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    method.invoke(object, resultSet.getLong(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
-        } else if (parameterType.equals(double.class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    method.invoke(object, resultSet.getDouble(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
-        } else if (parameterType.equals(String.class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    method.invoke(object, resultSet.getString(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
-        } else if (parameterType.equals(Date.class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    Timestamp timestamp = resultSet.getTimestamp(name);
-                    if (timestamp != null) {
-                        method.invoke(object, new Date(timestamp.getTime()));
-                    }
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
-        } else if (parameterType.equals(byte[].class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    method.invoke(object, resultSet.getBytes(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
-        } else {
-            processors.add((object, resultSet) -> {
-                String value = resultSet.getString(name);
-                if (value != null && !value.isEmpty()) {
-                    try {
-                        method.invoke(object, objectMapper.readValue(value, parameterType));
-                    } catch (InvocationTargetException | IllegalAccessException | IOException error) {
-                        LOGGER.warn("Set property error", error);
+        try {
+            for (int i = 0; i < boundWriters.length; i++) {
+                EntityMapper.ColumnWriter writer = boundWriters[i];
+                if (writer != null) {
+                    for (int index : boundIndexes[i]) {
+                        writer.write(object, statement, index, objectMapper);
                     }
                 }
-            });
+            }
+        } catch (SQLException error) {
+            statement.close();
+            connection.close();
+            throw error;
+        } catch (IOException e) {
+            LOGGER.warn("Set object error", e);
         }
+
+        return this;
     }
 
     private void logQuery() {
@@ -401,60 +279,60 @@ public final class QueryBuilder {
         }
     }
 
+    private void commitEvent(QueryEvent event, long rows, boolean batch) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.setQuery(query);
+            event.setRows(rows);
+            event.setBatch(batch);
+            event.commit();
+        }
+    }
+
     public <T> List<T> executeQuery(Class<T> clazz) throws SQLException {
-        List<T> result = new LinkedList<>();
+        List<T> result = new ArrayList<>();
 
         if (query != null) {
 
+            QueryEvent event = new QueryEvent();
+            event.begin();
             try {
 
                 logQuery();
 
                 try (ResultSet resultSet = statement.executeQuery()) {
 
+                    EntityMapper<T> mapper = EntityMapper.of(clazz);
                     ResultSetMetaData resultMetaData = resultSet.getMetaData();
 
-                    List<ResultSetProcessor<T>> processors = new LinkedList<>();
-
-                    Method[] methods = clazz.getMethods();
-
-                    for (final Method method : methods) {
-                        if (method.getName().startsWith("set") && method.getParameterTypes().length == 1) {
-
-                            final String name = method.getName().substring(3);
-
-                            // Check if column exists
-                            boolean column = false;
-                            for (int i = 1; i <= resultMetaData.getColumnCount(); i++) {
-                                if (name.equalsIgnoreCase(resultMetaData.getColumnLabel(i))) {
-                                    column = true;
-                                    break;
-                                }
-                            }
-                            if (!column) {
-                                continue;
-                            }
-
-                            addProcessors(processors, method.getParameterTypes()[0], method, name);
+                    int columnCount = resultMetaData.getColumnCount();
+                    List<EntityMapper.ColumnReader> readers = new ArrayList<>(columnCount);
+                    int[] indexes = new int[columnCount];
+                    for (int i = 1; i <= columnCount; i++) {
+                        EntityMapper.ColumnReader reader = mapper.getReader(resultMetaData.getColumnLabel(i));
+                        if (reader != null) {
+                            indexes[readers.size()] = i;
+                            readers.add(reader);
                         }
                     }
 
                     while (resultSet.next()) {
-                        try {
-                            T object = clazz.getDeclaredConstructor().newInstance();
-                            for (ResultSetProcessor<T> processor : processors) {
-                                processor.process(object, resultSet);
+                        T object = mapper.newInstance();
+                        for (int i = 0; i < readers.size(); i++) {
+                            try {
+                                readers.get(i).read(object, resultSet, indexes[i], objectMapper);
+                            } catch (IOException | RuntimeException error) {
+                                LOGGER.warn("Set property error", error);
                             }
-                            result.add(object);
-                        } catch (ReflectiveOperationException e) {
-                            throw new IllegalArgumentException();
                         }
+                        result.add(object);
                     }
                 }
 
             } finally {
                 statement.close();
                 connection.close();
+                commitEvent(event, result.size(), false);
             }
         }
 
@@ -464,9 +342,13 @@ public final class QueryBuilder {
     public long executeUpdate() throws SQLException {
 
         if (query != null) {
+            QueryEvent event = new QueryEvent();
+            event.begin();
+            long rows = 0;
             try {
                 logQuery();
                 statement.execute();
+                rows = Math.max(statement.getUpdateCount(), 0);
                 if (returnGeneratedKeys) {
                     ResultSet resultSet = statement.getGeneratedKeys();
                     if (resultSet.next()) {
@@ -476,14 +358,65 @@ public final class QueryBuilder {
             } finally {
                 statement.close();
                 connection.close();
+                commitEvent(event, rows, false);
             }
         }
         return 0;
     }
 
+    public QueryBuilder addBatch() throws SQLException {
+        try {
+            statement.addBatch();
+            batchCount += 1;
+        } catch (SQLException error) {
+            statement.close();
+            connection.close();
+            throw error;
+        }
+        return this;
+    }
+
+    public List<Long> executeBatch() throws SQLException {
+        List<Long> result = new ArrayList<>(batchCount);
+        if (query != null) {
+            QueryEvent event = new QueryEvent();
+            event.begin();
+            try {
+                logQuery();
+                connection.setAutoCommit(false);
+                try {
+                    statement.executeBatch();
+                    if (returnGeneratedKeys) {
+                        try (ResultSet resultSet = statement.getGeneratedKeys()) {
+                            while (resultSet.next()) {
+                                result.add(resultSet.getLong(1));
+                            }
+                        }
+                        if (result.size() != batchCount) {
+                            throw new SQLException("Generated keys count mismatch");
+                        }
+                    }
+                    connection.commit();
+                } catch (SQLException error) {
+                    connection.rollback();
+                    throw error;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            } finally {
+                statement.close();
+                connection.close();
+                commitEvent(event, batchCount, true);
+            }
+        }
+        return result;
+    }
+
     public List<Permission> executePermissionsQuery() throws SQLException {
         List<Permission> result = new LinkedList<>();
         if (query != null) {
+            QueryEvent event = new QueryEvent();
+            event.begin();
             try {
                 logQuery();
                 try (ResultSet resultSet = statement.executeQuery()) {
@@ -500,6 +433,7 @@ public final class QueryBuilder {
             } finally {
                 statement.close();
                 connection.close();
+                commitEvent(event, result.size(), false);
             }
         }
 
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+final class QueryTemplate {
+
+    private static final int[] NO_INDEXES = new int[0];
+
+    private final String query;
+    private final String parsedQuery;
+    private final Map<String, int[]> indexMap;
+
+    private QueryTemplate(String query, String parsedQuery, Map<String, int[]> indexMap) {
+        this.query = query;
+        this.parsedQuery = parsedQuery;
+        this.indexMap = indexMap;
+    }
+
+    /**
+     * Original query with named parameters.
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * JDBC query with named parameters replaced by placeholders.
+     */
+    public String getParsedQuery() {
+        return parsedQuery;
+    }
+
+    public int[] getIndexes(String name) {
+        int[] result = indexMap.get(name);
+        return result != null ? result : NO_INDEXES;
+    }
+
+    public static QueryTemplate parse(String query) {
+
+        int length = query.length();
+        StringBuilder parsedQuery = new StringBuilder(length);
+        Map<String, List<Integer>> paramMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        boolean inSingleQuote = false;
+        boolean inDoubleQuote = false;
+        int index = 1;
+
+        for (int i = 0; i < length; i++) {
+
+            char c = query.charAt(i);
+
+            // String end
+            if (inSingleQuote) {
+                if (c == '\'') {
+                    inSingleQuote = false;
+                }
+            } else if (inDoubleQuote) {
+                if (c == '"') {
+                    inDoubleQuote = false;
+                }
+            } else {
+
+                // String begin
+                if (c == '\'') {
+                    inSingleQuote = true;
+                } else if (c == '"') {
+                    inDoubleQuote = true;
+                } else if (c == ':' && i + 1 < length
+                        && Character.isJavaIdentifierStart(query.charAt(i + 1))) {
+
+                    // Identifier name
+                    int j = i + 2;
+                    while (j < length && Character.isJavaIdentifierPart(query.charAt(j))) {
+                        j++;
+                    }
+
+                    String name = query.substring(i + 1, j);
+                    c = '?';
+                    i += name.length();
+
+                    // Add to list
+                    paramMap.computeIfAbsent(name, k -> new ArrayList<>()).add(index);
+
+                    index++;
+                }
+            }
+
+            parsedQuery.append(c);
+        }
+
+        Map<String, int[]> indexMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, List<Integer>> entry : paramMap.entrySet()) {
+            indexMap.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        return new QueryTemplate(query, parsedQuery.toString(), Collections.unmodifiableMap(indexMap));
+    }
+
+}
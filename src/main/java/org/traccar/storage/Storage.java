@@ -17,8 +17,11 @@ package org.traccar.storage;
 
 import org.traccar.model.BaseModel;
 import org.traccar.model.Permission;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
 import org.traccar.storage.query.Request;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public abstract class Storage {
@@ -27,8 +30,22 @@ public abstract class Storage {
 
     public abstract <T> long addObject(T entity, Request request) throws StorageException;
 
+    public <T> List<Long> addObjects(List<T> entities, Request request) throws StorageException {
+        List<Long> result = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            result.add(addObject(entity, request));
+        }
+        return result;
+    }
+
     public abstract <T> void updateObject(T entity, Request request) throws StorageException;
 
+    public <T extends BaseModel> void updateObjects(List<T> entities, Columns columns) throws StorageException {
+        for (T entity : entities) {
+            updateObject(entity, new Request(columns, new Condition.Equals("id", entity.getId())));
+        }
+    }
+
     public abstract void removeObject(Class<?> clazz, Request request) throws StorageException;
 
     public abstract List<Permission> getPermissions(
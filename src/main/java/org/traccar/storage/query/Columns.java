@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,18 +19,33 @@ import org.traccar.storage.QueryIgnore;
 
 import java.beans.Introspector;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public abstract class Columns {
 
+    private static final Map<Class<?>, List<String>> GET_COLUMNS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, List<String>> SET_COLUMNS = new ConcurrentHashMap<>();
+
     public abstract List<String> getColumns(Class<?> clazz, String type);
 
     protected List<String> getAllColumns(Class<?> clazz, String type) {
-        List<String> columns = new LinkedList<>();
+        if (type.equals("set")) {
+            return SET_COLUMNS.computeIfAbsent(clazz, k -> findColumns(k, type));
+        } else if (type.equals("get")) {
+            return GET_COLUMNS.computeIfAbsent(clazz, k -> findColumns(k, type));
+        }
+        return findColumns(clazz, type);
+    }
+
+    private static List<String> findColumns(Class<?> clazz, String type) {
+        List<String> columns = new ArrayList<>();
         Method[] methods = clazz.getMethods();
         for (Method method : methods) {
             int parameterCount = type.equals("set") ? 1 : 0;
@@ -40,7 +55,7 @@ public abstract class Columns {
                 columns.add(Introspector.decapitalize(method.getName().substring(3)));
             }
         }
-        return columns;
+        return Collections.unmodifiableList(columns);
     }
 
     public static class All extends Columns {
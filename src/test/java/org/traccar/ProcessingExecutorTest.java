@@ -0,0 +1,180 @@
+package org.traccar;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.traccar.handler.AcknowledgementHandler;
+import org.traccar.handler.ProcessingDispatchHandler;
+import org.traccar.model.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProcessingExecutorTest {
+
+    private EventExecutorGroup group;
+
+    @BeforeEach
+    public void setUp() {
+        group = new DefaultEventExecutorGroup(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).awaitUninterruptibly();
+    }
+
+    private Position position(long deviceId, int index) {
+        Position position = new Position();
+        position.setDeviceId(deviceId);
+        position.set(Position.KEY_INDEX, index);
+        return position;
+    }
+
+    private EmbeddedChannel createChannel(ChannelInboundHandlerAdapter... handlers) {
+        ProcessingExecutor executor = new ProcessingExecutor(group);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channel.pipeline().addLast(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                promise.setSuccess();
+            }
+        });
+        channel.pipeline().addLast(new ProcessingDispatchHandler(executor));
+        for (ChannelInboundHandlerAdapter handler : handlers) {
+            channel.pipeline().addLast(executor, handler);
+        }
+        channel.pipeline().addLast(executor, new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                ctx.writeAndFlush(new AcknowledgementHandler.EventHandled(msg));
+            }
+        });
+        return channel;
+    }
+
+    @Test
+    public void testOrderPerDevice() throws Exception {
+        int count = 100;
+        long[] devices = {1, 2, 3, 5};
+        Map<Long, List<Integer>> received = new ConcurrentHashMap<>();
+        Map<Long, Set<Thread>> threads = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(count * devices.length);
+
+        EmbeddedChannel channel = createChannel(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                Position position = (Position) msg;
+                received.computeIfAbsent(position.getDeviceId(), k -> new ArrayList<>())
+                        .add(position.getInteger(Position.KEY_INDEX));
+                threads.computeIfAbsent(position.getDeviceId(), k -> ConcurrentHashMap.newKeySet())
+                        .add(Thread.currentThread());
+                latch.countDown();
+                ctx.fireChannelRead(msg);
+            }
+        });
+
+        for (int i = 0; i < count; i++) {
+            for (long deviceId : devices) {
+                channel.writeInbound(position(deviceId, i));
+            }
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        for (long deviceId : devices) {
+            List<Integer> indexes = received.get(deviceId);
+            assertEquals(count, indexes.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals(i, indexes.get(i));
+            }
+            assertEquals(1, threads.get(deviceId).size());
+        }
+        assertEquals(threads.get(1L), threads.get(5L));
+    }
+
+    @Test
+    public void testParallelDevices() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch finished = new CountDownLatch(2);
+
+        EmbeddedChannel channel = createChannel(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                started.countDown();
+                if (started.await(5, TimeUnit.SECONDS)) {
+                    finished.countDown();
+                }
+            }
+        });
+
+        channel.writeInbound(position(1, 0));
+        channel.writeInbound(position(2, 0));
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAsyncCompletion() throws Exception {
+        Map<Long, Thread> asyncThreads = new ConcurrentHashMap<>();
+        Map<Long, List<Thread>> completedThreads = new ConcurrentHashMap<>();
+        AtomicReference<ChannelHandlerContext> pendingContext = new AtomicReference<>();
+        AtomicReference<Position> pendingPosition = new AtomicReference<>();
+        CountDownLatch pending = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(3);
+
+        EmbeddedChannel channel = createChannel(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                Position position = (Position) msg;
+                asyncThreads.put(position.getDeviceId(), Thread.currentThread());
+                if (position.getDeviceId() == 1) {
+                    pendingContext.set(ctx);
+                    pendingPosition.set(position);
+                    pending.countDown();
+                } else {
+                    ctx.fireChannelRead(msg);
+                }
+            }
+        }, new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                Position position = (Position) msg;
+                completedThreads.computeIfAbsent(position.getDeviceId(), k -> new CopyOnWriteArrayList<>())
+                        .add(Thread.currentThread());
+                completed.countDown();
+                ctx.fireChannelRead(msg);
+            }
+        });
+
+        channel.writeInbound(position(1, 0));
+        assertTrue(pending.await(5, TimeUnit.SECONDS));
+        channel.writeInbound(position(2, 0));
+        channel.writeInbound(position(2, 1));
+
+        ProcessingExecutor.fireChannelRead(pendingContext.get(), pendingPosition.get());
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertNotEquals(asyncThreads.get(1L), asyncThreads.get(2L));
+        assertEquals(List.of(asyncThreads.get(1L)), completedThreads.get(1L));
+        assertEquals(List.of(asyncThreads.get(2L), asyncThreads.get(2L)), completedThreads.get(2L));
+    }
+
+}
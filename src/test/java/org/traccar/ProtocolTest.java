@@ -25,6 +25,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.function.BiConsumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -34,6 +35,22 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ProtocolTest extends BaseTest {
 
+    private static BiConsumer<BaseProtocolDecoder, Object> decodeListener;
+
+    /**
+     * Listener for messages passed to position checks. Used by benchmarks to reuse test samples.
+     */
+    public static void setDecodeListener(BiConsumer<BaseProtocolDecoder, Object> decodeListener) {
+        ProtocolTest.decodeListener = decodeListener;
+    }
+
+    private Object decode(BaseProtocolDecoder decoder, Object object) throws Exception {
+        if (decodeListener != null) {
+            decodeListener.accept(decoder, object);
+        }
+        return decoder.decode(null, null, object);
+    }
+
     protected Position position(String time, boolean valid, double lat, double lon) throws ParseException {
 
         Position position = new Position();
@@ -134,23 +151,23 @@ public class ProtocolTest extends BaseTest {
     }
 
     protected void verifyPosition(BaseProtocolDecoder decoder, Object object) throws Exception {
-        verifyDecodedPosition(decoder.decode(null, null, object), true, false, null);
+        verifyDecodedPosition(decode(decoder, object), true, false, null);
     }
 
     protected void verifyPosition(BaseProtocolDecoder decoder, Object object, Position position) throws Exception {
-        verifyDecodedPosition(decoder.decode(null, null, object), true, false, position);
+        verifyDecodedPosition(decode(decoder, object), true, false, position);
     }
 
     protected void verifyPositions(BaseProtocolDecoder decoder, Object object) throws Exception {
-        verifyDecodedList(decoder.decode(null, null, object), true, null);
+        verifyDecodedList(decode(decoder, object), true, null);
     }
 
     protected void verifyPositions(BaseProtocolDecoder decoder, boolean checkLocation, Object object) throws Exception {
-        verifyDecodedList(decoder.decode(null, null, object), checkLocation, null);
+        verifyDecodedList(decode(decoder, object), checkLocation, null);
     }
 
     protected void verifyPositions(BaseProtocolDecoder decoder, Object object, Position position) throws Exception {
-        verifyDecodedList(decoder.decode(null, null, object), true, position);
+        verifyDecodedList(decode(decoder, object), true, position);
     }
 
     private void verifyDecodedList(Object decodedObject, boolean checkLocation, Position expected) {
@@ -0,0 +1,101 @@
+package org.traccar.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.traccar.broadcast.NullBroadcastService;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Position;
+import org.traccar.session.ConnectionManager;
+import org.traccar.session.cache.LatestPositionCache;
+import org.traccar.storage.MemoryStorage;
+import org.traccar.storage.Storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncSocketTest {
+
+    private Position createPosition(long id) {
+        return createPosition(id, 1, 0, 0);
+    }
+
+    private Position createPosition(long id, long deviceId, double latitude, double longitude) {
+        Position position = new Position();
+        position.setId(id);
+        position.setDeviceId(deviceId);
+        position.setLatitude(latitude);
+        position.setLongitude(longitude);
+        return position;
+    }
+
+    @Test
+    public void testSlowConsumer() {
+        var config = new Config();
+        config.setString(Keys.WEB_SOCKET_INTERVAL, "3600000");
+        config.setString(Keys.WEB_SOCKET_MAX_FRAMES, "2");
+        var dispatcher = new AsyncSocketDispatcher(config, new ObjectMapper());
+        var socket = new AsyncSocket(
+                new ObjectMapper(), mock(ConnectionManager.class), mock(Storage.class),
+                new LatestPositionCache(new MemoryStorage(), new NullBroadcastService()), dispatcher, 1);
+
+        var session = mock(Session.class);
+        var remote = mock(RemoteEndpoint.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getRemote()).thenReturn(remote);
+        socket.onWebSocketConnect(session);
+
+        socket.onUpdatePosition(createPosition(1));
+        socket.flush(object -> String.valueOf(((Position) object).getId()));
+        socket.onUpdatePosition(createPosition(2));
+        socket.onUpdatePosition(createPosition(3));
+        socket.flush(object -> String.valueOf(((Position) object).getId()));
+
+        var text = ArgumentCaptor.forClass(String.class);
+        var callback = ArgumentCaptor.forClass(WriteCallback.class);
+        verify(remote, times(2)).sendString(text.capture(), callback.capture());
+        assertEquals("{\"positions\":[1]}", text.getValue());
+        assertEquals(1, dispatcher.getSocketCount());
+
+        callback.getAllValues().get(0).writeSuccess();
+        socket.flush(object -> String.valueOf(((Position) object).getId()));
+        verify(remote, times(3)).sendString(text.capture(), any());
+        assertEquals("{\"positions\":[3]}", text.getValue());
+    }
+
+    @Test
+    public void testSubscription() {
+        var config = new Config();
+        config.setString(Keys.WEB_SOCKET_INTERVAL, "3600000");
+        var dispatcher = new AsyncSocketDispatcher(config, new ObjectMapper());
+        var socket = new AsyncSocket(
+                new ObjectMapper(), mock(ConnectionManager.class), mock(Storage.class),
+                new LatestPositionCache(new MemoryStorage(), new NullBroadcastService()), dispatcher, 1);
+
+        var session = mock(Session.class);
+        var remote = mock(RemoteEndpoint.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getRemote()).thenReturn(remote);
+        socket.onWebSocketConnect(session);
+        socket.onWebSocketText("{\"deviceIds\":[1,2],\"bounds\":[170,-10,-170,10]}");
+
+        socket.onUpdatePosition(createPosition(1, 1, 0, 175));
+        socket.onUpdatePosition(createPosition(2, 2, 0, 0));
+        socket.onUpdatePosition(createPosition(3, 3, 0, -175));
+        socket.onUpdatePosition(createPosition(4, 2, 5, -175));
+        socket.flush(object -> String.valueOf(((Position) object).getId()));
+
+        var text = ArgumentCaptor.forClass(String.class);
+        verify(remote, times(3)).sendString(text.capture(), any());
+        assertEquals("{\"positions\":[1,4]}", text.getValue());
+    }
+
+}
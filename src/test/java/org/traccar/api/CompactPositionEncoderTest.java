@@ -0,0 +1,42 @@
+package org.traccar.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.traccar.model.Position;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactPositionEncoderTest {
+
+    private Position createPosition(double latitude, int battery) {
+        Position position = new Position();
+        position.setDeviceId(1);
+        position.setServerTime(new Date(1000));
+        position.setTime(new Date(1000));
+        position.setLatitude(latitude);
+        position.set(Position.KEY_BATTERY_LEVEL, battery);
+        return position;
+    }
+
+    @Test
+    public void testEncode() throws Exception {
+        var objectMapper = new ObjectMapper();
+        var encoder = new CompactPositionEncoder(objectMapper);
+
+        String first = encoder.encode(createPosition(10, 50));
+        assertTrue(first.contains("\"la\":10.0"));
+        assertTrue(first.contains("\"ft\":1000"));
+
+        assertEquals(
+                objectMapper.readTree("{\"d\":1,\"la\":11.0,\"at\":{\"batteryLevel\":49}}"),
+                objectMapper.readTree(encoder.encode(createPosition(11, 49))));
+        assertEquals("{\"d\":1}", encoder.encode(createPosition(11, 49)));
+
+        encoder.reset();
+        assertEquals(first.replace("10.0", "11.0").replace("50", "49"), encoder.encode(createPosition(11, 49)));
+    }
+
+}
@@ -0,0 +1,67 @@
+package org.traccar.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ArchiveSegmentTest {
+
+    private List<RawFrame> read(ArchiveSegment segment, long deviceId, long from, long to) throws Exception {
+        List<RawFrame> result = new ArrayList<>();
+        Map<Long, Map<Integer, Long>> blocks = new TreeMap<>();
+        List<RawFrame> pending = new ArrayList<>();
+        long limit = segment.readPending(deviceId, from, to, blocks, pending);
+        segment.read(deviceId, from, to, limit, blocks, result);
+        result.addAll(pending);
+        return result;
+    }
+
+    @Test
+    public void testSortedRuns(@TempDir Path path) throws Exception {
+        Deflater deflater = new Deflater();
+        ArchiveSegment segment = new ArchiveSegment(path.resolve("test.dat"), path.resolve("test.idx"), 200);
+
+        for (int run = 0; run < 3; run++) {
+            for (int i = 0; i < 10; i++) {
+                long time = run * 10 + i;
+                for (long deviceId = 5; deviceId > 0; deviceId--) {
+                    segment.append(List.<long[]>of(new long[] {deviceId, time}), time,
+                            ("frame " + deviceId + " " + time).getBytes(StandardCharsets.US_ASCII), deflater);
+                }
+            }
+            segment.close(deflater);
+        }
+
+        for (int i = 0; i < 5; i++) {
+            segment.append(List.<long[]>of(new long[] {3, 30 + i}), 30 + i,
+                    ("frame 3 " + (30 + i)).getBytes(StandardCharsets.US_ASCII), deflater);
+        }
+
+        List<RawFrame> frames = read(segment, 3, 0, 100);
+        assertEquals(35, frames.size());
+        for (int i = 0; i < frames.size(); i++) {
+            assertEquals(3, frames.get(i).getDeviceId());
+            assertEquals(i, frames.get(i).getFixTime().getTime());
+            assertEquals("frame 3 " + i, new String(frames.get(i).getBytes(), StandardCharsets.US_ASCII));
+        }
+
+        assertEquals(6, read(segment, 1, 8, 13).size());
+        assertEquals(3, read(segment, 3, 29, 31).size());
+        assertEquals(0, read(segment, 6, 0, 100).size());
+
+        segment.close(deflater);
+        ArchiveSegment reopened = new ArchiveSegment(path.resolve("test.dat"), path.resolve("test.idx"), 200);
+        assertEquals(35, read(reopened, 3, 0, 100).size());
+        assertEquals(30, read(reopened, 5, 0, 100).size());
+    }
+
+}
@@ -0,0 +1,93 @@
+package org.traccar.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Position;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RawArchiveTest {
+
+    private static final long DAY_START = 1672531200000L; // 2023-01-01
+
+    private Position position(long deviceId, long time) {
+        Position position = new Position();
+        position.setDeviceId(deviceId);
+        position.setTime(new Date(time));
+        return position;
+    }
+
+    @Test
+    public void testArchive(@TempDir Path path) throws Exception {
+        var config = new Config();
+        config.setString(Keys.DATABASE_ARCHIVE_PATH, path.toString());
+        config.setString(Keys.DATABASE_ARCHIVE_BLOCK_SIZE, "100");
+        var archive = new RawArchive(config);
+        archive.start();
+
+        for (int i = 0; i < 20; i++) {
+            long time = DAY_START + i * 7200000L;
+            archive.addFrame(List.of(position(1, time)), ("device1 frame " + i).getBytes(StandardCharsets.US_ASCII));
+            archive.addFrame(List.of(position(2, time)), ("device2 frame " + i).getBytes(StandardCharsets.US_ASCII));
+        }
+        archive.addFrame(
+                List.of(position(3, DAY_START), position(3, DAY_START + 1000)),
+                "multiple".getBytes(StandardCharsets.US_ASCII));
+
+        List<RawFrame> frames = List.of();
+        for (int i = 0; i < 50 && frames.size() < 20; i++) {
+            Thread.sleep(100);
+            frames = archive.getFrames(1, new Date(DAY_START), new Date(DAY_START + 40 * 7200000L));
+        }
+        assertEquals(20, frames.size());
+        for (int i = 0; i < frames.size(); i++) {
+            assertEquals(1, frames.get(i).getDeviceId());
+            assertEquals(DAY_START + i * 7200000L, frames.get(i).getFixTime().getTime());
+            assertArrayEquals(("device1 frame " + i).getBytes(StandardCharsets.US_ASCII), frames.get(i).getBytes());
+        }
+
+        frames = archive.getFrames(2, new Date(DAY_START + 5 * 7200000L), new Date(DAY_START + 5 * 7200000L));
+        assertEquals(1, frames.size());
+        assertEquals("64657669636532206672616d652035", frames.get(0).getData());
+
+        frames = archive.getFrames(3, new Date(DAY_START), new Date(DAY_START + 1000));
+        assertEquals(1, frames.size());
+
+        assertTrue(Files.exists(path.resolve("20230101.dat")));
+        assertTrue(Files.exists(path.resolve("20230102.idx")));
+
+        archive.stop();
+        archive = new RawArchive(config);
+        assertEquals(20, archive.getFrames(2, new Date(DAY_START), new Date(DAY_START + 40 * 7200000L)).size());
+        assertEquals(1, archive.getFrames(3, new Date(DAY_START), new Date(DAY_START + 1000)).size());
+    }
+
+    @Test
+    public void testStopFlush(@TempDir Path path) throws Exception {
+        var config = new Config();
+        config.setString(Keys.DATABASE_ARCHIVE_PATH, path.toString());
+        config.setString(Keys.DATABASE_ARCHIVE_FLUSH_DELAY, "60000");
+        config.setString(Keys.DATABASE_ARCHIVE_QUEUE_SIZE, "10");
+        var archive = new RawArchive(config);
+
+        for (int i = 0; i < 20; i++) {
+            archive.addFrame(List.of(position(1, DAY_START + i)), new byte[] {(byte) i});
+        }
+        archive.start();
+        archive.stop();
+
+        archive = new RawArchive(config);
+        assertEquals(10, archive.getFrames(1, new Date(DAY_START), new Date(DAY_START + 20)).size());
+    }
+
+}
@@ -0,0 +1,149 @@
+package org.traccar.database;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.traccar.ServerManager;
+import org.traccar.broadcast.NullBroadcastService;
+import org.traccar.model.Command;
+import org.traccar.model.QueuedCommand;
+import org.traccar.session.ConnectionManager;
+import org.traccar.session.DeviceSession;
+import org.traccar.storage.MemoryStorage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Request;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CommandsManagerTest {
+
+    private MemoryStorage storage;
+    private ConnectionManager connectionManager;
+
+    @BeforeEach
+    public void setUp() {
+        storage = spy(new MemoryStorage());
+        connectionManager = mock(ConnectionManager.class);
+    }
+
+    private CommandsManager createCommandsManager() {
+        return new CommandsManager(
+                storage, mock(ServerManager.class), null, connectionManager, new NullBroadcastService());
+    }
+
+    private Command createCommand(long deviceId, String data) {
+        Command command = new Command();
+        command.setDeviceId(deviceId);
+        command.setType(Command.TYPE_CUSTOM);
+        command.set(Command.KEY_DATA, data);
+        return command;
+    }
+
+    private List<String> readData(CommandsManager commandsManager, long deviceId, int count) {
+        return commandsManager.readQueuedCommands(deviceId, count).stream()
+                .map(command -> command.getString(Command.KEY_DATA))
+                .collect(Collectors.toList());
+    }
+
+    private int countStored(long deviceId) throws StorageException {
+        return (int) storage.getObjects(QueuedCommand.class, new Request(new Columns.All())).stream()
+                .filter(command -> command.getDeviceId() == deviceId)
+                .count();
+    }
+
+    @Test
+    public void testSendLive() throws Exception {
+        DeviceSession deviceSession = mock(DeviceSession.class);
+        when(deviceSession.supportsLiveCommands()).thenReturn(true);
+        when(connectionManager.getDeviceSession(1)).thenReturn(deviceSession);
+        var commandsManager = createCommandsManager();
+
+        Command command = createCommand(1, "live");
+        assertTrue(commandsManager.sendCommand(command));
+        verify(deviceSession).sendCommand(command);
+
+        clearInvocations(storage);
+        assertTrue(commandsManager.readQueuedCommands(1).isEmpty());
+        verify(storage, never()).getObjects(eq(QueuedCommand.class), any());
+    }
+
+    @Test
+    public void testQueueAndDeliver() throws Exception {
+        var commandsManager = createCommandsManager();
+
+        clearInvocations(storage);
+        assertTrue(commandsManager.readQueuedCommands(1).isEmpty());
+        verify(storage, never()).getObjects(eq(QueuedCommand.class), any());
+
+        assertFalse(commandsManager.sendCommand(createCommand(1, "first")));
+        assertFalse(commandsManager.sendCommand(createCommand(1, "second")));
+        assertFalse(commandsManager.sendCommand(createCommand(2, "other")));
+        assertEquals(2, countStored(1));
+
+        assertEquals(List.of("first", "second"), readData(commandsManager, 1, Integer.MAX_VALUE));
+        assertEquals(0, countStored(1));
+        assertEquals(1, countStored(2));
+
+        clearInvocations(storage);
+        assertTrue(commandsManager.readQueuedCommands(1).isEmpty());
+        verify(storage, never()).getObjects(eq(QueuedCommand.class), any());
+
+        assertEquals(List.of("other"), readData(commandsManager, 2, Integer.MAX_VALUE));
+        assertEquals(0, countStored(2));
+    }
+
+    @Test
+    public void testBatchedRemoval() throws Exception {
+        var commandsManager = createCommandsManager();
+
+        for (int i = 0; i < 5; i++) {
+            commandsManager.sendCommand(createCommand(1, String.valueOf(i)));
+        }
+
+        assertEquals(List.of("0", "1"), readData(commandsManager, 1, 2));
+        assertEquals(3, countStored(1));
+        assertEquals(List.of("2", "3"), readData(commandsManager, 1, 2));
+        assertEquals(1, countStored(1));
+        assertEquals(List.of("4"), readData(commandsManager, 1, 2));
+        assertEquals(0, countStored(1));
+
+        clearInvocations(storage);
+        assertTrue(commandsManager.readQueuedCommands(1, 2).isEmpty());
+        verify(storage, never()).getObjects(eq(QueuedCommand.class), any());
+    }
+
+    @Test
+    public void testStoredAndRemoteCommands() throws Exception {
+        storage.addObject(QueuedCommand.fromCommand(createCommand(1, "stored")), new Request(new Columns.All()));
+        var commandsManager = createCommandsManager();
+
+        assertEquals(List.of("stored"), readData(commandsManager, 1, Integer.MAX_VALUE));
+
+        DeviceSession deviceSession = mock(DeviceSession.class);
+        when(deviceSession.supportsLiveCommands()).thenReturn(true);
+        when(connectionManager.getDeviceSession(1)).thenReturn(deviceSession);
+
+        storage.addObject(QueuedCommand.fromCommand(createCommand(1, "remote")), new Request(new Columns.All()));
+        commandsManager.updateCommand(false, 1);
+        verify(deviceSession, times(1)).sendCommand(any());
+        assertEquals(0, countStored(1));
+
+        commandsManager.updateCommand(true, 1);
+        verify(deviceSession, times(1)).sendCommand(any());
+    }
+
+}
@@ -0,0 +1,106 @@
+package org.traccar.database;
+
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.traccar.broadcast.NullBroadcastService;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Device;
+import org.traccar.session.cache.CacheManager;
+import org.traccar.storage.MemoryStorage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Request;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DeviceLookupServiceTest {
+
+    private Timer timer;
+
+    @BeforeEach
+    public void setUp() {
+        timer = mock(Timer.class);
+        when(timer.newTimeout(any(), anyLong(), any())).thenReturn(mock(Timeout.class));
+    }
+
+    @Test
+    public void testLookup() throws StorageException {
+        var storage = spy(new MemoryStorage());
+        var broadcastService = new NullBroadcastService();
+        var config = new Config();
+        config.setString(Keys.DATABASE_THROTTLE_UNKNOWN, "true");
+        var cacheManager = new CacheManager(config, storage, broadcastService);
+        var deviceLookupService = new DeviceLookupService(
+                config, storage, cacheManager, timer, broadcastService);
+
+        var device = new Device();
+        device.setUniqueId("123456789012345");
+        device.setId(storage.addObject(device, new Request(new Columns.Exclude("id"))));
+
+        assertEquals(device.getId(), deviceLookupService.lookup(new String[] {"123", "123456789012345"}).getId());
+        assertNull(deviceLookupService.lookup(new String[] {"456"}));
+
+        clearInvocations(storage);
+        cacheManager.addDevice(device.getId());
+        clearInvocations(storage);
+        assertEquals(device.getId(), deviceLookupService.lookup(new String[] {"123", "123456789012345"}).getId());
+        assertNull(deviceLookupService.lookup(new String[] {"456"}));
+        verify(storage, never()).getObjects(eq(Device.class), any());
+
+        var unknown = new Device();
+        unknown.setUniqueId("456");
+        unknown.setId(storage.addObject(unknown, new Request(new Columns.Exclude("id"))));
+        assertNull(deviceLookupService.lookup(new String[] {"456"}));
+        deviceLookupService.refresh(false, unknown);
+        assertEquals(unknown.getId(), deviceLookupService.lookup(new String[] {"456"}).getId());
+
+        clearInvocations(storage);
+        deviceLookupService.invalidateObject(false, Device.class, unknown.getId());
+        verify(storage, never()).getObjects(eq(Device.class), any());
+        assertEquals(unknown.getId(), deviceLookupService.lookup(new String[] {"456"}).getId());
+        verify(storage).getObjects(eq(Device.class), any());
+    }
+
+    @Test
+    public void testUnknownCache() throws StorageException {
+        var storage = spy(new MemoryStorage());
+        var broadcastService = new NullBroadcastService();
+        var cacheManager = new CacheManager(new Config(), storage, broadcastService);
+        var deviceLookupService = new DeviceLookupService(
+                new Config(), storage, cacheManager, timer, broadcastService);
+
+        assertNull(deviceLookupService.lookup(new String[] {"456"}));
+        assertNull(deviceLookupService.lookup(new String[] {"789"}));
+        clearInvocations(storage);
+        assertNull(deviceLookupService.lookup(new String[] {"456"}));
+        assertNull(deviceLookupService.lookup(new String[] {"789"}));
+        verify(storage, never()).getObjects(eq(Device.class), any());
+
+        var device = new Device();
+        device.setUniqueId("456");
+        device.setId(storage.addObject(device, new Request(new Columns.Exclude("id"))));
+        deviceLookupService.refresh(false, device);
+        assertEquals(device.getId(), deviceLookupService.lookup(new String[] {"456"}).getId());
+
+        var remote = new Device();
+        remote.setUniqueId("789");
+        remote.setId(storage.addObject(remote, new Request(new Columns.Exclude("id"))));
+        assertNull(deviceLookupService.lookup(new String[] {"789"}));
+        deviceLookupService.invalidateObject(false, Device.class, remote.getId());
+        assertEquals(remote.getId(), deviceLookupService.lookup(new String[] {"789"}).getId());
+    }
+
+}
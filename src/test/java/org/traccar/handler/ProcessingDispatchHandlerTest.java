@@ -0,0 +1,88 @@
+package org.traccar.handler;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.metrics.MetricsRegistry;
+import org.traccar.model.Device;
+import org.traccar.model.Position;
+import org.traccar.session.cache.CacheManager;
+import org.traccar.storage.BatchWriter;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ProcessingDispatchHandlerTest {
+
+    private Position createPosition(long time, double latitude) {
+        Position position = new Position();
+        position.setDeviceId(1);
+        position.setTime(new Date(time));
+        position.setValid(true);
+        position.setLatitude(latitude);
+        position.setLongitude(10);
+        return position;
+    }
+
+    @Test
+    public void testAsyncWriteOrder() {
+        var config = mock(Config.class);
+        when(config.getBoolean(Keys.FILTER_ENABLE)).thenReturn(true);
+        when(config.getBoolean(Keys.FILTER_DUPLICATE)).thenReturn(true);
+
+        Map<Long, Position> lastPositions = new HashMap<>();
+        var cacheManager = mock(CacheManager.class);
+        when(cacheManager.getConfig()).thenReturn(config);
+        when(cacheManager.getObject(any(), anyLong())).thenReturn(mock(Device.class));
+        when(cacheManager.getPosition(anyLong())).then(invocation -> lastPositions.get(invocation.<Long>getArgument(0)));
+
+        var first = new CompletableFuture<Long>();
+        var second = new CompletableFuture<Long>();
+        var batchWriter = mock(BatchWriter.class);
+        when(batchWriter.addObject(any())).thenReturn(first, second);
+
+        List<Position> handled = new ArrayList<>();
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new ProcessingDispatchHandler(null),
+                new DistanceHandler(config, cacheManager),
+                new FilterHandler(config, cacheManager, null),
+                new DefaultDataHandler(batchWriter, new MetricsRegistry()),
+                new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        Position position = (Position) msg;
+                        lastPositions.put(position.getDeviceId(), position);
+                        handled.add(position);
+                        ctx.writeAndFlush(new AcknowledgementHandler.EventHandled(position));
+                    }
+                });
+
+        channel.writeInbound(createPosition(60000, 10));
+        channel.writeInbound(createPosition(120000, 10.01));
+        channel.writeInbound(createPosition(120000, 10.01));
+        assertEquals(0, handled.size());
+
+        first.complete(1L);
+        assertEquals(1, handled.size());
+
+        second.complete(2L);
+        assertEquals(2, handled.size());
+        assertEquals(2, handled.get(1).getId());
+        assertEquals(1113.19, handled.get(1).getDouble(Position.KEY_DISTANCE), 0.01);
+        assertEquals(1113.19, handled.get(1).getDouble(Position.KEY_TOTAL_DISTANCE), 0.01);
+    }
+
+}
@@ -0,0 +1,55 @@
+package org.traccar.helper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AsyncHandlerTest {
+
+    @Test
+    public void testPublishError() {
+        List<String> published = new CopyOnWriteArrayList<>();
+        Handler target = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getMessage().equals("bad")) {
+                    throw new IllegalStateException("bad");
+                }
+                published.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        List<Integer> errors = new CopyOnWriteArrayList<>();
+        Handler handler = new Log.AsyncHandler(target, 16, true);
+        handler.setErrorManager(new ErrorManager() {
+            @Override
+            public synchronized void error(String msg, Exception ex, int code) {
+                errors.add(code);
+            }
+        });
+
+        handler.publish(new LogRecord(Level.INFO, "first"));
+        handler.publish(new LogRecord(Level.INFO, "bad"));
+        handler.publish(new LogRecord(Level.INFO, "second"));
+        handler.close();
+
+        assertEquals(List.of("first", "second"), published);
+        assertEquals(List.of(ErrorManager.WRITE_FAILURE), errors);
+    }
+
+}
@@ -0,0 +1,34 @@
+package org.traccar.helper;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StringUtilTest {
+
+    private static String format(double value, int decimals) {
+        return StringUtil.appendDecimal(new StringBuilder(), value, decimals).toString();
+    }
+
+    @Test
+    public void testContainsHex() {
+        assertTrue(StringUtil.containsHex("01af"));
+        assertFalse(StringUtil.containsHex("0123"));
+    }
+
+    @Test
+    public void testAppendDecimal() {
+        assertEquals("0.00000", format(0, 5));
+        assertEquals("48.85341", format(48.853409, 5));
+        assertEquals("-2.34880", format(-2.3488, 5));
+        assertEquals("0.00100", format(0.001, 5));
+        assertEquals("-0.00001", format(-0.000005, 5));
+        assertEquals("12.5", format(12.45, 1));
+        assertEquals("180.0", format(179.96, 1));
+        assertEquals("7", format(7.4, 0));
+        assertEquals("NaN", format(Double.NaN, 1));
+    }
+
+}
@@ -0,0 +1,46 @@
+package org.traccar.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testCounter() {
+        var registry = new MetricsRegistry();
+        var counter = registry.counter("test_total", "Test counter", "protocol");
+        counter.labels("gt06").increment();
+        counter.labels("gt06").increment();
+        counter.labels("te\"st").increment();
+
+        assertSame(counter, registry.counter("test_total", "Test counter", "protocol"));
+        assertThrows(IllegalArgumentException.class, () -> registry.histogram("test_total", "Test", Histogram.LATENCY_BUCKETS));
+
+        String output = registry.scrape();
+        assertTrue(output.contains("# TYPE test_total counter\n"));
+        assertTrue(output.contains("test_total{protocol=\"gt06\"} 2\n"));
+        assertTrue(output.contains("test_total{protocol=\"te\\\"st\"} 1\n"));
+    }
+
+    @Test
+    public void testHistogram() {
+        var registry = new MetricsRegistry();
+        var histogram = registry.histogram("test_seconds", "Test histogram", new double[] {0.1, 1});
+        histogram.observe(0.05);
+        histogram.observe(0.5);
+        histogram.observe(5);
+        registry.gauge("test_gauge", "Test gauge", () -> 1.5);
+
+        String output = registry.scrape();
+        assertTrue(output.contains("test_seconds_bucket{le=\"0.1\"} 1\n"));
+        assertTrue(output.contains("test_seconds_bucket{le=\"1.0\"} 2\n"));
+        assertTrue(output.contains("test_seconds_bucket{le=\"+Inf\"} 3\n"));
+        assertTrue(output.contains("test_seconds_sum 5.55\n"));
+        assertTrue(output.contains("test_seconds_count 3\n"));
+        assertTrue(output.contains("test_gauge 1.5\n"));
+    }
+
+}
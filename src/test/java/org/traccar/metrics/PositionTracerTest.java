@@ -0,0 +1,47 @@
+package org.traccar.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Position;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PositionTracerTest {
+
+    @Test
+    public void testTrace() {
+        var config = new Config();
+        config.setString(Keys.SERVER_TRACE, "true");
+        var registry = new MetricsRegistry();
+        var tracer = new PositionTracer(config, registry);
+
+        var position = new Position();
+        tracer.start(position, System.nanoTime());
+        tracer.stage(position, "FilterHandler");
+        tracer.stage(position, "GeocoderHandler");
+        assertEquals(3, position.getTrace().getCount());
+        assertEquals("GeocoderHandler", position.getTrace().getStage(2));
+
+        tracer.complete(position);
+        assertNull(position.getTrace());
+
+        String output = registry.scrape();
+        assertTrue(output.contains("traccar_pipeline_stage_seconds_count{stage=\"decode\"} 1\n"));
+        assertTrue(output.contains("traccar_pipeline_stage_seconds_count{stage=\"GeocoderHandler\"} 1\n"));
+        assertTrue(output.contains("traccar_pipeline_seconds_count 1\n"));
+    }
+
+    @Test
+    public void testDisabled() {
+        var tracer = new PositionTracer(new Config(), new MetricsRegistry());
+        var position = new Position();
+        tracer.start(position, System.nanoTime());
+        tracer.stage(position, "FilterHandler");
+        tracer.complete(position);
+        assertNull(position.getTrace());
+    }
+
+}
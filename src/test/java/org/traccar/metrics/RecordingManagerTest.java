@@ -0,0 +1,53 @@
+package org.traccar.metrics;
+
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecordingManagerTest {
+
+    @Test
+    public void testRecording() throws Exception {
+        var recordingManager = new RecordingManager();
+        assertNull(recordingManager.dump());
+
+        recordingManager.start("default", Duration.ofMinutes(1), 1024 * 1024);
+        assertEquals(RecordingState.RUNNING, recordingManager.getState());
+
+        var event = new QueryEvent();
+        event.begin();
+        event.setQuery("SELECT * FROM tc_devices");
+        event.setRows(1);
+        event.commit();
+
+        recordingManager.stop();
+        assertEquals(RecordingState.STOPPED, recordingManager.getState());
+
+        var path = recordingManager.dump();
+        try {
+            assertTrue(RecordingFile.readAllEvents(path).stream()
+                    .anyMatch(e -> e.getEventType().getName().equals("org.traccar.Query")));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testUnknownConfiguration() {
+        var recordingManager = new RecordingManager();
+        assertThrows(IllegalArgumentException.class,
+                () -> recordingManager.start("unknown", Duration.ofMinutes(1), 1024 * 1024));
+        assertThrows(IllegalArgumentException.class,
+                () -> recordingManager.start("../default", Duration.ofMinutes(1), 1024 * 1024));
+        assertNull(recordingManager.getState());
+    }
+
+}
@@ -0,0 +1,123 @@
+package org.traccar.session;
+
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.traccar.broadcast.BroadcastService;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.database.DeviceLookupService;
+import org.traccar.database.NotificationManager;
+import org.traccar.model.Device;
+import org.traccar.session.cache.CacheManager;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConnectionManagerTest {
+
+    private Storage storage;
+    private CacheManager cacheManager;
+    private BroadcastService broadcastService;
+    private ConnectionManager connectionManager;
+
+    @BeforeEach
+    public void setUp() {
+        var config = new Config();
+        config.setString(Keys.STATUS_UPDATE_INTERVAL, "60");
+        storage = mock(Storage.class);
+        cacheManager = mock(CacheManager.class);
+        broadcastService = mock(BroadcastService.class);
+        var timer = mock(Timer.class);
+        when(timer.newTimeout(any(), anyLong(), any())).thenReturn(mock(Timeout.class));
+        connectionManager = new ConnectionManager(
+                config, cacheManager, storage, mock(NotificationManager.class), timer, broadcastService,
+                mock(DeviceLookupService.class));
+    }
+
+    private Device addDevice(long id) {
+        Device device = new Device();
+        device.setId(id);
+        device.setStatus(Device.STATUS_OFFLINE);
+        when(cacheManager.getObject(Device.class, id)).thenReturn(device);
+        return device;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Device> captureFlush() throws StorageException {
+        ArgumentCaptor<List<Device>> captor = ArgumentCaptor.forClass(List.class);
+        verify(storage).updateObjects(captor.capture(), any());
+        return captor.getValue();
+    }
+
+    @Test
+    public void testCoalesceUpdates() throws StorageException {
+        addDevice(1);
+
+        connectionManager.updateDevice(1, Device.STATUS_ONLINE, new Date(1000));
+        verify(storage, times(1)).updateObject(any(), any());
+        verify(broadcastService, times(1)).updateDevice(any(Boolean.class), any());
+
+        connectionManager.updateDevice(1, Device.STATUS_ONLINE, new Date(2000));
+        connectionManager.updateDevice(1, Device.STATUS_ONLINE, new Date(3000));
+        verify(storage, times(1)).updateObject(any(), any());
+        verify(storage, never()).updateObjects(any(), any());
+        verify(broadcastService, times(1)).updateDevice(any(Boolean.class), any());
+
+        connectionManager.flushDeviceUpdates();
+        List<Device> devices = captureFlush();
+        assertEquals(1, devices.size());
+        assertEquals(1, devices.get(0).getId());
+        assertEquals(new Date(3000), devices.get(0).getLastUpdate());
+        verify(broadcastService, times(2)).updateDevice(any(Boolean.class), any());
+
+        connectionManager.flushDeviceUpdates();
+        verify(storage, times(1)).updateObjects(any(), any());
+    }
+
+    @Test
+    public void testSeparateDevices() throws StorageException {
+        addDevice(1);
+        addDevice(2);
+
+        connectionManager.updateDevice(1, Device.STATUS_ONLINE, new Date(1000));
+        connectionManager.updateDevice(2, Device.STATUS_ONLINE, new Date(1000));
+        connectionManager.updateDevice(1, Device.STATUS_ONLINE, new Date(2000));
+        connectionManager.updateDevice(2, Device.STATUS_ONLINE, new Date(3000));
+        connectionManager.updateDevice(1, Device.STATUS_ONLINE, new Date(4000));
+
+        connectionManager.flushDeviceUpdates();
+        Map<Long, Date> updates = captureFlush().stream()
+                .collect(Collectors.toMap(Device::getId, Device::getLastUpdate));
+        assertEquals(Map.of(1L, new Date(4000), 2L, new Date(3000)), updates);
+    }
+
+    @Test
+    public void testStatusChangeNotDelayed() throws StorageException {
+        addDevice(1);
+
+        connectionManager.updateDevice(1, Device.STATUS_ONLINE, new Date(1000));
+        connectionManager.updateDevice(1, Device.STATUS_ONLINE, new Date(2000));
+        connectionManager.updateDevice(1, Device.STATUS_OFFLINE, new Date(3000));
+        verify(storage, times(2)).updateObject(any(), any());
+
+        connectionManager.flushDeviceUpdates();
+        verify(storage, never()).updateObjects(any(), any());
+    }
+
+}
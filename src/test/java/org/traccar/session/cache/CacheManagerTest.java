@@ -0,0 +1,129 @@
+package org.traccar.session.cache;
+
+import org.junit.jupiter.api.Test;
+import org.traccar.broadcast.NullBroadcastService;
+import org.traccar.config.Config;
+import org.traccar.model.BaseModel;
+import org.traccar.model.Calendar;
+import org.traccar.model.Device;
+import org.traccar.model.Geofence;
+import org.traccar.model.Group;
+import org.traccar.model.Notification;
+import org.traccar.model.Permission;
+import org.traccar.model.User;
+import org.traccar.storage.MemoryStorage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Request;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CacheManagerTest {
+
+    private <T extends BaseModel> T add(MemoryStorage storage, T object) throws StorageException {
+        object.setId(storage.addObject(object, new Request(new Columns.Exclude("id"))));
+        return object;
+    }
+
+    @Test
+    public void testGeofenceLinks() throws StorageException {
+        var storage = new MemoryStorage();
+        var calendar = add(storage, new Calendar());
+        var geofence = new Geofence();
+        geofence.setCalendarId(calendar.getId());
+        add(storage, geofence);
+        var first = add(storage, new Device());
+        var second = add(storage, new Device());
+        storage.addPermission(new Permission(Device.class, first.getId(), Geofence.class, geofence.getId()));
+
+        var cacheManager = new CacheManager(new Config(), storage, new NullBroadcastService());
+        cacheManager.addDevice(first.getId());
+        cacheManager.addDevice(second.getId());
+        assertEquals(1, cacheManager.getDeviceObjects(first.getId(), Geofence.class).size());
+        assertEquals(1, cacheManager.getDeviceObjects(first.getId(), Calendar.class).size());
+        assertTrue(cacheManager.getDeviceObjects(second.getId(), Geofence.class).isEmpty());
+
+        storage.addPermission(new Permission(Device.class, second.getId(), Geofence.class, geofence.getId()));
+        cacheManager.invalidatePermission(false, Device.class, second.getId(), Geofence.class, geofence.getId());
+        assertEquals(1, cacheManager.getDeviceObjects(second.getId(), Geofence.class).size());
+        assertEquals(1, cacheManager.getDeviceObjects(second.getId(), Calendar.class).size());
+
+        storage.removePermission(new Permission(Device.class, first.getId(), Geofence.class, geofence.getId()));
+        cacheManager.invalidatePermission(false, Device.class, first.getId(), Geofence.class, geofence.getId());
+        assertTrue(cacheManager.getDeviceObjects(first.getId(), Geofence.class).isEmpty());
+        assertTrue(cacheManager.getDeviceObjects(first.getId(), Calendar.class).isEmpty());
+        assertEquals(1, cacheManager.getDeviceObjects(second.getId(), Geofence.class).size());
+
+        storage.removeObject(Geofence.class, new Request(new Condition.Equals("id", geofence.getId())));
+        cacheManager.invalidate(Geofence.class, geofence.getId());
+        assertTrue(cacheManager.getDeviceObjects(second.getId(), Geofence.class).isEmpty());
+        assertNull(cacheManager.getObject(Geofence.class, geofence.getId()));
+        assertNull(cacheManager.getObject(Calendar.class, calendar.getId()));
+    }
+
+    @Test
+    public void testUserNotificationLinks() throws StorageException {
+        var storage = new MemoryStorage();
+        var user = add(storage, new User());
+        var notification = new Notification();
+        notification.setAlways(true);
+        add(storage, notification);
+        var device = add(storage, new Device());
+
+        var cacheManager = new CacheManager(new Config(), storage, new NullBroadcastService());
+        cacheManager.addDevice(device.getId());
+
+        storage.addPermission(new Permission(User.class, user.getId(), Notification.class, notification.getId()));
+        cacheManager.invalidatePermission(false, User.class, user.getId(), Notification.class, notification.getId());
+        assertTrue(cacheManager.getDeviceObjects(device.getId(), Notification.class).isEmpty());
+
+        storage.addPermission(new Permission(User.class, user.getId(), Device.class, device.getId()));
+        cacheManager.invalidatePermission(false, User.class, user.getId(), Device.class, device.getId());
+        assertEquals(1, cacheManager.getDeviceObjects(device.getId(), Notification.class).size());
+        assertEquals(1, cacheManager.getNotificationUsers(notification.getId(), device.getId()).size());
+
+        storage.removePermission(new Permission(User.class, user.getId(), Device.class, device.getId()));
+        cacheManager.invalidatePermission(false, User.class, user.getId(), Device.class, device.getId());
+        assertTrue(cacheManager.getDeviceObjects(device.getId(), Notification.class).isEmpty());
+        assertTrue(cacheManager.getNotificationUsers(notification.getId(), device.getId()).isEmpty());
+    }
+
+    @Test
+    public void testPreload() throws StorageException {
+        var storage = new MemoryStorage();
+        var parent = add(storage, new Group());
+        var group = new Group();
+        group.setGroupId(parent.getId());
+        add(storage, group);
+        var device = new Device();
+        device.setGroupId(group.getId());
+        add(storage, device);
+        var calendar = add(storage, new Calendar());
+        var geofence = new Geofence();
+        geofence.setCalendarId(calendar.getId());
+        add(storage, geofence);
+        var user = add(storage, new User());
+        var notification = new Notification();
+        notification.setAlways(true);
+        add(storage, notification);
+        storage.addPermission(new Permission(Group.class, parent.getId(), Geofence.class, geofence.getId()));
+        storage.addPermission(new Permission(User.class, user.getId(), Group.class, group.getId()));
+        storage.addPermission(new Permission(User.class, user.getId(), Notification.class, notification.getId()));
+
+        var cacheManager = new CacheManager(new Config(), storage, new NullBroadcastService());
+        assertEquals(1, cacheManager.preload().size());
+        assertEquals(2, cacheManager.getDeviceObjects(device.getId(), Group.class).size());
+        assertEquals(1, cacheManager.getDeviceObjects(device.getId(), Geofence.class).size());
+        assertEquals(1, cacheManager.getDeviceObjects(device.getId(), Calendar.class).size());
+        assertEquals(1, cacheManager.getDeviceObjects(device.getId(), Notification.class).size());
+        assertEquals(1, cacheManager.getNotificationUsers(notification.getId(), device.getId()).size());
+
+        cacheManager.addDevice(device.getId());
+        cacheManager.removeDevice(device.getId());
+        assertEquals(device, cacheManager.getObject(Device.class, device.getId()));
+    }
+
+}
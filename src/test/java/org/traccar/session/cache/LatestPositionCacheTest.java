@@ -0,0 +1,39 @@
+package org.traccar.session.cache;
+
+import org.junit.jupiter.api.Test;
+import org.traccar.broadcast.NullBroadcastService;
+import org.traccar.model.Position;
+import org.traccar.storage.MemoryStorage;
+import org.traccar.storage.StorageException;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class LatestPositionCacheTest {
+
+    private Position createPosition(long deviceId, long time) {
+        Position position = new Position();
+        position.setDeviceId(deviceId);
+        position.setTime(new Date(time));
+        return position;
+    }
+
+    @Test
+    public void testUpdate() throws StorageException {
+        var latestPositionCache = new LatestPositionCache(new MemoryStorage(), new NullBroadcastService());
+
+        var latest = createPosition(1, 2000);
+        latestPositionCache.update(latest);
+        latestPositionCache.update(createPosition(1, 1000));
+        latestPositionCache.updatePosition(false, createPosition(2, 1000));
+        latestPositionCache.updatePosition(true, createPosition(3, 1000));
+
+        var positions = latestPositionCache.getPositions(List.of(1L, 2L, 3L));
+        assertEquals(2, positions.size());
+        assertSame(latest, positions.get(0));
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.traccar.storage;
+
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Event;
+import org.traccar.model.Position;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Request;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class BatchWriterTest {
+
+    @Test
+    public void testDirectWrite() {
+        var batchWriter = new BatchWriter(new Config(), new MemoryStorage());
+        assertTrue(batchWriter.addObject(new Position()).join() > 0);
+    }
+
+    @Test
+    public void testBatchWrite() throws Exception {
+        var config = new Config();
+        config.setString(Keys.DATABASE_BATCH_SIZE, "5");
+        var storage = new MemoryStorage();
+        var batchWriter = new BatchWriter(config, storage);
+        batchWriter.start();
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            futures.add(batchWriter.addObject(i % 3 == 0 ? new Event() : new Position()));
+        }
+
+        var ids = new HashSet<Long>();
+        for (var future : futures) {
+            ids.add(future.join());
+        }
+        assertEquals(12, ids.size());
+        assertEquals(8, storage.getObjects(Position.class, new Request(new Columns.All())).size());
+
+        batchWriter.stop();
+    }
+
+    @Test
+    public void testStopFlush() throws Exception {
+        var config = new Config();
+        config.setString(Keys.DATABASE_BATCH_SIZE, "100");
+        config.setString(Keys.DATABASE_BATCH_DELAY, "60000");
+        var storage = new MemoryStorage();
+        var batchWriter = new BatchWriter(config, storage);
+        batchWriter.start();
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(batchWriter.addObject(new Position()));
+        }
+        batchWriter.stop();
+
+        for (var future : futures) {
+            assertTrue(future.isDone());
+            assertTrue(future.join() > 0);
+        }
+        assertEquals(5, storage.getObjects(Position.class, new Request(new Columns.All())).size());
+    }
+
+    @Test
+    public void testQueueFull() throws Exception {
+        var config = new Config();
+        config.setString(Keys.DATABASE_BATCH_SIZE, "1");
+        config.setString(Keys.DATABASE_BATCH_QUEUE_SIZE, "1");
+        var storage = mock(Storage.class);
+        var writing = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            List<?> entities = invocation.getArgument(0);
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < entities.size(); i++) {
+                ids.add(i + 1L);
+            }
+            return ids;
+        }).when(storage).addObjects(any(), any());
+        var batchWriter = new BatchWriter(config, storage);
+        batchWriter.start();
+
+        var first = batchWriter.addObject(new Position());
+        writing.await();
+        var second = batchWriter.addObject(new Position());
+        var rejected = batchWriter.addObject(new Position());
+        assertTrue(rejected.isCompletedExceptionally());
+
+        release.countDown();
+        batchWriter.stop();
+        assertFalse(first.isCompletedExceptionally());
+        assertFalse(second.isCompletedExceptionally());
+        assertTrue(second.isDone());
+    }
+
+}
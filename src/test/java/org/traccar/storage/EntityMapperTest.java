@@ -0,0 +1,93 @@
+package org.traccar.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.traccar.helper.ClassScanner;
+import org.traccar.model.BaseModel;
+import org.traccar.model.Position;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EntityMapperTest {
+
+    public static class UrlModel {
+
+        private String url;
+
+        public String getURL() {
+            return url;
+        }
+
+        public void setURL(String url) {
+            this.url = url;
+        }
+
+    }
+
+    @Test
+    public void testStorageModels() throws Exception {
+        for (Class<?> clazz : ClassScanner.findSubclasses(BaseModel.class, "org.traccar.model")) {
+            if (clazz.isAnnotationPresent(StorageName.class)) {
+                var mapper = EntityMapper.of(clazz);
+                assertEquals(clazz, mapper.newInstance().getClass());
+                assertNotNull(mapper.getReader("ID"));
+                assertNotNull(mapper.getWriter("id"));
+            }
+        }
+    }
+
+    @Test
+    public void testPosition() throws Exception {
+        var objectMapper = new ObjectMapper();
+        var mapper = EntityMapper.of(Position.class);
+        var resultSet = mock(ResultSet.class);
+        when(resultSet.getLong(1)).thenReturn(42L);
+        when(resultSet.getDouble(2)).thenReturn(48.85);
+        when(resultSet.getTimestamp(3)).thenReturn(new Timestamp(1000));
+        when(resultSet.getString(4)).thenReturn("{\"ignition\":true}");
+
+        Position position = mapper.newInstance();
+        mapper.getReader("DEVICEID").read(position, resultSet, 1, objectMapper);
+        mapper.getReader("latitude").read(position, resultSet, 2, objectMapper);
+        mapper.getReader("fixtime").read(position, resultSet, 3, objectMapper);
+        mapper.getReader("attributes").read(position, resultSet, 4, objectMapper);
+        assertEquals(42, position.getDeviceId());
+        assertEquals(48.85, position.getLatitude());
+        assertEquals(new Date(1000), position.getFixTime());
+        assertEquals(true, position.getAttributes().get("ignition"));
+        assertNull(mapper.getReader("unknown"));
+
+        var statement = mock(PreparedStatement.class);
+        mapper.getWriter("deviceId").write(position, statement, 1, objectMapper);
+        mapper.getWriter("geofenceIds").write(position, statement, 2, objectMapper);
+        mapper.getWriter("protocol").write(position, statement, 3, objectMapper);
+        mapper.getWriter("attributes").write(position, statement, 4, objectMapper);
+        verify(statement).setLong(1, 42L);
+        verify(statement).setString(2, "null");
+        verify(statement).setNull(3, Types.VARCHAR);
+        verify(statement).setString(4, "{\"ignition\":true}");
+    }
+
+    @Test
+    public void testCapitalizedColumn() throws Exception {
+        var mapper = EntityMapper.of(UrlModel.class);
+        var model = new UrlModel();
+        model.setURL("http://localhost");
+        var statement = mock(PreparedStatement.class);
+        mapper.getWriter("URL").write(model, statement, 1, new ObjectMapper());
+        verify(statement).setString(1, "http://localhost");
+        assertNull(mapper.getWriter("uRL"));
+    }
+
+}
@@ -0,0 +1,27 @@
+package org.traccar.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class QueryTemplateTest {
+
+    @Test
+    public void testParse() {
+        var template = QueryTemplate.parse(
+                "SELECT * FROM tc_positions WHERE deviceId = :deviceId AND fixTime BETWEEN :from AND :to"
+                + " AND protocol <> ':ignored' OR deviceId = :deviceid");
+
+        assertEquals(
+                "SELECT * FROM tc_positions WHERE deviceId = ? AND fixTime BETWEEN ? AND ?"
+                + " AND protocol <> ':ignored' OR deviceId = ?",
+                template.getParsedQuery());
+        assertArrayEquals(new int[] {1, 4}, template.getIndexes("deviceId"));
+        assertArrayEquals(new int[] {1, 4}, template.getIndexes("DEVICEID"));
+        assertArrayEquals(new int[] {2}, template.getIndexes("from"));
+        assertArrayEquals(new int[] {3}, template.getIndexes("to"));
+        assertArrayEquals(new int[] {}, template.getIndexes("ignored"));
+    }
+
+}